@@ -0,0 +1,175 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.graphics.Path;
+
+/**
+ * 粘连体，两个圆之间由两条贝塞尔曲线围成的区域.
+ *
+ * 每个加载器持有一个实例，每帧通过 {@link #set} 计算端点和控制点，
+ * 再通过 {@link #writeTo(Path)} 写入调用者持有的路径，绘制过程中不分配对象.
+ */
+final class AdherentBody {
+
+    /**
+     * 圆心距离下限，防止两圆圆心重合时除零
+     */
+    private static final float MIN_LENGTH = 1e-6f;
+
+    /**
+     * 两条贝塞尔曲线的四个端点
+     */
+    float x1, y1, x2, y2, x3, y3, x4, y4;
+
+    /**
+     * 贝塞尔曲线的控制点
+     */
+    float anchorX1, anchorY1, anchorX2, anchorY2;
+
+    /**
+     * 计算粘连体
+     *
+     * @param cx1     圆心x1
+     * @param cy1     圆心y1
+     * @param r1      圆半径r1
+     * @param offset1 贝塞尔曲线偏移角度offset1的旋转因子
+     * @param cx2     圆心x2
+     * @param cy2     圆心y2
+     * @param r2      圆半径r2
+     * @param offset2 贝塞尔曲线偏移角度offset2的旋转因子
+     * @return 当前实例
+     */
+    AdherentBody set(float cx1, float cy1, float r1, FloatTrig.Rotation offset1,
+                     float cx2, float cy2, float r2, FloatTrig.Rotation offset2) {
+        return set(cx1, cy1, r1, offset1.cos, offset1.sin, cx2, cy2, r2, offset2.cos, offset2.sin);
+    }
+
+    /**
+     * 计算粘连体.
+     *
+     * 以圆2指向圆1的单位向量u为基准，端点为圆心沿u旋转偏移角度后的方向：
+     * 圆1上的端点为 c1 - r1 * rotate(u, ∓offset1)，圆2上的端点为 c2 + r2 * rotate(u, ±offset2).
+     * 只需一次开方，不需要角度换算和象限判断. 两圆圆心重合时u为零向量，粘连体退化为空.
+     *
+     * @param cx1  圆心x1
+     * @param cy1  圆心y1
+     * @param r1   圆半径r1
+     * @param cos1 贝塞尔曲线偏移角度offset1的余弦
+     * @param sin1 贝塞尔曲线偏移角度offset1的正弦
+     * @param cx2  圆心x2
+     * @param cy2  圆心y2
+     * @param r2   圆半径r2
+     * @param cos2 贝塞尔曲线偏移角度offset2的余弦
+     * @param sin2 贝塞尔曲线偏移角度offset2的正弦
+     * @return 当前实例
+     */
+    AdherentBody set(float cx1, float cy1, float r1, float cos1, float sin1,
+                     float cx2, float cy2, float r2, float cos2, float sin2) {
+
+        /* 圆2指向圆1的单位向量 */
+        float differenceX = cx1 - cx2;
+        float differenceY = cy1 - cy2;
+        float inverseLength = 1 / Math.max((float) Math.sqrt(differenceX * differenceX + differenceY * differenceY), MIN_LENGTH);
+        float ux = differenceX * inverseLength;
+        float uy = differenceY * inverseLength;
+
+        /* 圆1上的两个端点 */
+        float parallel1 = r1 * ux * cos1;
+        float perpendicular1 = r1 * uy * sin1;
+        float parallelY1 = r1 * uy * cos1;
+        float perpendicularY1 = r1 * ux * sin1;
+        x1 = cx1 - parallel1 - perpendicular1;
+        y1 = cy1 - parallelY1 + perpendicularY1;
+        x3 = cx1 - parallel1 + perpendicular1;
+        y3 = cy1 - parallelY1 - perpendicularY1;
+
+        /* 圆2上的两个端点 */
+        float parallel2 = r2 * ux * cos2;
+        float perpendicular2 = r2 * uy * sin2;
+        float parallelY2 = r2 * uy * cos2;
+        float perpendicularY2 = r2 * ux * sin2;
+        x2 = cx2 + parallel2 - perpendicular2;
+        y2 = cy2 + parallelY2 + perpendicularY2;
+        x4 = cx2 + parallel2 + perpendicular2;
+        y4 = cy2 + parallelY2 - perpendicularY2;
+
+        /* 圆1大于圆2 */
+        if (r1 > r2) {
+            anchorX1 = (x2 + x3) / 2;
+            anchorY1 = (y2 + y3) / 2;
+            anchorX2 = (x1 + x4) / 2;
+            anchorY2 = (y1 + y4) / 2;
+        }
+        /* 圆1小于或等于圆2 */
+        else {
+            anchorX1 = (x1 + x4) / 2;
+            anchorY1 = (y1 + y4) / 2;
+            anchorX2 = (x2 + x3) / 2;
+            anchorY2 = (y2 + y3) / 2;
+        }
+
+        return this;
+    }
+
+    /**
+     * 计算关于中心点对称的两个等大圆之间的粘连体.
+     *
+     * 圆2是圆1关于中心点的中心对称，只计算圆1上的两个端点，
+     * 圆2上的端点由对称得到：p2 = 2 * center - p3，p4 = 2 * center - p1，两个控制点都是中心点.
+     *
+     * @param cx      圆心x1
+     * @param cy      圆心y1
+     * @param r       两个圆的半径
+     * @param offset  贝塞尔曲线偏移角度的旋转因子
+     * @param centerX 对称中心x
+     * @param centerY 对称中心y
+     * @return 当前实例
+     */
+    AdherentBody setMirrored(float cx, float cy, float r, FloatTrig.Rotation offset, float centerX, float centerY) {
+
+        /* 中心点指向圆1的单位向量，与圆2指向圆1的方向相同 */
+        float differenceX = cx - centerX;
+        float differenceY = cy - centerY;
+        float inverseLength = 1 / Math.max((float) Math.sqrt(differenceX * differenceX + differenceY * differenceY), MIN_LENGTH);
+        float ux = differenceX * inverseLength;
+        float uy = differenceY * inverseLength;
+
+        /* 圆1上的两个端点 */
+        float parallel = r * ux * offset.cos;
+        float perpendicular = r * uy * offset.sin;
+        float parallelY = r * uy * offset.cos;
+        float perpendicularY = r * ux * offset.sin;
+        x1 = cx - parallel - perpendicular;
+        y1 = cy - parallelY + perpendicularY;
+        x3 = cx - parallel + perpendicular;
+        y3 = cy - parallelY - perpendicularY;
+
+        /* 圆2上的两个端点 */
+        x2 = 2 * centerX - x3;
+        y2 = 2 * centerY - y3;
+        x4 = 2 * centerX - x1;
+        y4 = 2 * centerY - y1;
+
+        /* 两圆等大，控制点都在对称中心 */
+        anchorX1 = anchorX2 = centerX;
+        anchorY1 = anchorY2 = centerY;
+
+        return this;
+    }
+
+    /**
+     * 将粘连体写入路径，路径原有内容会被清除
+     *
+     * @param path 调用者持有的路径
+     * @return 传入的路径
+     */
+    Path writeTo(Path path) {
+        path.rewind();
+        path.moveTo(x1, y1);
+        path.quadTo(anchorX1, anchorY1, x2, y2);
+        path.lineTo(x4, y4);
+        path.quadTo(anchorX2, anchorY2, x3, y3);
+        path.lineTo(x1, y1);
+
+        return path;
+    }
+}
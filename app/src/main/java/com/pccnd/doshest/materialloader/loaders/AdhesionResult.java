@@ -0,0 +1,56 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+/**
+ * 一帧的粘连判断结果.
+ *
+ * 加载器在绘制前对每一对圆判断一次，把是否粘连和粘连时的半径写入这里，绘制时只读取结果.
+ */
+final class AdhesionResult {
+
+    /**
+     * 是否粘连
+     */
+    final boolean[] adhering;
+
+    /**
+     * 当前半径
+     */
+    final float[] radius;
+
+    /**
+     * 构造函数
+     *
+     * @param count 圆的对数
+     */
+    AdhesionResult(int count) {
+        adhering = new boolean[count];
+        radius = new float[count];
+    }
+
+    /**
+     * 记录一对圆的判断结果
+     *
+     * @param position 第几对
+     * @param adhering 是否粘连
+     * @param radius   当前半径
+     */
+    void set(int position, boolean adhering, float radius) {
+        this.adhering[position] = adhering;
+        this.radius[position] = radius;
+    }
+
+    /**
+     * 两个圆心距离的平方
+     *
+     * @param x1 圆心x1
+     * @param y1 圆心y1
+     * @param x2 圆心x2
+     * @param y2 圆心y2
+     * @return 距离的平方
+     */
+    static float distanceSquared(float x1, float y1, float x2, float y2) {
+        float differenceX = x1 - x2;
+        float differenceY = y1 - y2;
+        return differenceX * differenceX + differenceY * differenceY;
+    }
+}
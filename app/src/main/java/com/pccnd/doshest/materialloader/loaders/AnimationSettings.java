@@ -0,0 +1,194 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.provider.Settings;
+
+import java.util.ArrayList;
+
+/**
+ * 系统的动画时长缩放和省电模式.
+ *
+ * 有监听时才注册设置变化和省电模式广播，最后一个监听移除时注销. 省电模式从 API 21 开始才有.
+ * 只能在主线程使用.
+ */
+final class AnimationSettings {
+
+    /**
+     * 省电模式下的帧率
+     */
+    static final int POWER_SAVE_FRAME_RATE = 20;
+
+    /**
+     * 设置变化监听
+     */
+    interface OnChangedListener {
+
+        /**
+         * 动画时长缩放或省电模式变化
+         */
+        void onAnimationSettingsChanged();
+    }
+
+    /**
+     * 单例
+     */
+    private static AnimationSettings sInstance;
+
+    /**
+     * Application Context
+     */
+    private final Context mContext;
+
+    /**
+     * 监听
+     */
+    private final ArrayList<OnChangedListener> mListeners = new ArrayList<OnChangedListener>();
+
+    /**
+     * 动画时长缩放
+     */
+    private float mDurationScale = 1;
+
+    /**
+     * 是否处于省电模式
+     */
+    private boolean mPowerSaveMode;
+
+    /**
+     * 动画时长缩放的变化
+     */
+    private ContentObserver mDurationScaleObserver;
+
+    /**
+     * 省电模式的变化
+     */
+    private BroadcastReceiver mPowerSaveModeReceiver;
+
+    private AnimationSettings(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * 获取单例
+     *
+     * @param context
+     * @return 单例
+     */
+    static AnimationSettings getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AnimationSettings(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * 动画时长缩放，0 表示关闭动画
+     *
+     * @return 缩放
+     */
+    float getDurationScale() {
+        return mDurationScale;
+    }
+
+    /**
+     * 是否处于省电模式
+     *
+     * @return 是否省电
+     */
+    boolean isPowerSaveMode() {
+        return mPowerSaveMode;
+    }
+
+    /**
+     * 添加监听，第一个监听时开始监视系统设置
+     *
+     * @param listener
+     */
+    void addListener(OnChangedListener listener) {
+        if (mListeners.contains(listener)) {
+            return;
+        }
+        if (mListeners.isEmpty()) {
+            register();
+            read();
+        }
+        mListeners.add(listener);
+    }
+
+    /**
+     * 移除监听，没有监听时停止监视系统设置
+     *
+     * @param listener
+     */
+    void removeListener(OnChangedListener listener) {
+        if (mListeners.remove(listener) && mListeners.isEmpty()) {
+            unregister();
+        }
+    }
+
+    /**
+     * 注册设置变化和省电模式广播
+     */
+    private void register() {
+        mDurationScaleObserver = new ContentObserver(new Handler()) {
+            @Override
+            public void onChange(boolean selfChange) {
+                onChanged();
+            }
+        };
+        mContext.getContentResolver().registerContentObserver(
+                Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE), false, mDurationScaleObserver);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mPowerSaveModeReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    onChanged();
+                }
+            };
+            mContext.registerReceiver(mPowerSaveModeReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        }
+    }
+
+    /**
+     * 注销
+     */
+    private void unregister() {
+        mContext.getContentResolver().unregisterContentObserver(mDurationScaleObserver);
+        mDurationScaleObserver = null;
+        if (mPowerSaveModeReceiver != null) {
+            mContext.unregisterReceiver(mPowerSaveModeReceiver);
+            mPowerSaveModeReceiver = null;
+        }
+    }
+
+    /**
+     * 读取当前设置
+     */
+    private void read() {
+        ContentResolver resolver = mContext.getContentResolver();
+        mDurationScale = Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+            mPowerSaveMode = powerManager != null && powerManager.isPowerSaveMode();
+        }
+    }
+
+    /**
+     * 设置变化，通知监听
+     */
+    private void onChanged() {
+        read();
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            mListeners.get(i).onAnimationSettingsChanged();
+        }
+    }
+}
@@ -1,14 +1,9 @@
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,7 +13,7 @@ import java.util.List;
  * 
  * Created by doshest on 2015/11/7.
  */
-public class ChaseMaterialLoader extends View {
+public class ChaseMaterialLoader extends MaterialLoader {
 
     /**
      * 宽度
@@ -132,13 +127,14 @@ public class ChaseMaterialLoader extends View {
             mCircle = new Circle();
             mCircle.radius = mCircleRadius;
             mCircle.angle = -90 - mDivideAngle * i;
+            mCircle.angleChannel = FloatChannel.once(mCircle.angle, mCircle.angle + 360, 0, getDuration(i), Easing.ACCELERATE_DECELERATE);
             mCircle.x = (float)(mBigCircle.x + mBigCircleRadius * Math.cos(Math.toRadians(mCircle.angle)));
             mCircle.y = (float)(mBigCircle.y + mBigCircleRadius * Math.sin(Math.toRadians(mCircle.angle)));
             mCircles.add(mCircle);
         }
         
-        /* 开始动画 */
-        startAnim();
+        /* 初始状态 */
+        onFrame(0);
     }
 
     /**
@@ -169,42 +165,64 @@ public class ChaseMaterialLoader extends View {
     
 
     /**
-     * 开始动画
+     * 追赶动画，第i个圆转一圈用时 1000 + 200 * i 毫秒，最后一个圆转完后重新开始
+     *
+     * @param playTime
      */
-    private void startAnim() {
-        
-        /* 追赶动画 */
+    @Override
+    protected boolean onFrame(long playTime) {
+        long cycleTime = playTime % getDuration(mCircleCount - 1);
+        boolean changed = false;
         for (int i = 0; i < mCircleCount; i++) {
-            
-            final Circle circle = mCircles.get(i);
-            
-            ValueAnimator valueAnimator = ValueAnimator.ofFloat(circle.angle, circle.angle + 360);
-            valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-            valueAnimator.setDuration(1000 + 200 * i);
-            valueAnimator.start();
-            valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    float angle = (float) animation.getAnimatedValue();
-                    circle.x = (float) (mBigCircle.x + mBigCircleRadius * Math.cos(Math.toRadians(angle)));
-                    circle.y = (float) (mBigCircle.y + mBigCircleRadius * Math.sin(Math.toRadians(angle)));
-                    invalidate();
-                }
-            });
-            if (i == mCircleCount - 1) {
-                valueAnimator.addListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        super.onAnimationEnd(animation);
-
-                        startAnim();
-                    }
-                });
-            }
+            mCircle = mCircles.get(i);
+            float angle = mCircle.angleChannel.valueAt(cycleTime);
+            float x = mBigCircle.x + mBigCircleRadius * FloatTrig.cos(angle);
+            float y = mBigCircle.y + mBigCircleRadius * FloatTrig.sin(angle);
+            changed |= x != mCircle.x || y != mCircle.y;
+            mCircle.x = x;
+            mCircle.y = y;
+        }
+        return changed;
+    }
 
+    /**
+     * 姿态：所有圆
+     *
+     * @param playTime
+     * @param out
+     */
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        long cycleTime = playTime % getDuration(mCircleCount - 1);
+        out.reset(mCircleCount);
+        for (int i = 0; i < mCircleCount; i++) {
+            Circle circle = mCircles.get(i);
+            float angle = circle.angleChannel.valueAt(cycleTime);
+            out.set(i, mBigCircle.x + mBigCircleRadius * FloatTrig.cos(angle),
+                    mBigCircle.y + mBigCircleRadius * FloatTrig.sin(angle), circle.radius);
         }
     }
 
+    /**
+     * 第i个圆转一圈的时长
+     *
+     * @param i
+     * @return 毫秒
+     */
+    private long getDuration(int i) {
+        return 1000 + 200 * i;
+    }
+
+    /**
+     * 掉帧降级时最低一级关闭抗锯齿
+     *
+     * @param tier
+     */
+    @Override
+    protected void onQualityTierChanged(int tier) {
+        mPaint.setAntiAlias(tier < QualityController.TIER_ALIASED);
+    }
+
     /**
      * 圆类
      */
@@ -213,6 +231,7 @@ public class ChaseMaterialLoader extends View {
         public float y;
         public float radius;
         public float angle;
+        public FloatChannel angleChannel;
       
     }
 }
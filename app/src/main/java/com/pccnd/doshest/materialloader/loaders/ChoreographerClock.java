@@ -0,0 +1,40 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.view.Choreographer;
+
+/**
+ * 跟随 {@link Choreographer} 垂直同步的时间来源，只能在主线程使用.
+ */
+final class ChoreographerClock extends LoaderClock {
+
+    /**
+     * 帧回调
+     */
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatchFrame(frameTimeNanos);
+        }
+    };
+
+    @Override
+    protected long getTimeNanos() {
+        return System.nanoTime();
+    }
+
+    @Override
+    protected void requestFrame(long delayMillis) {
+        Choreographer choreographer = Choreographer.getInstance();
+        choreographer.removeFrameCallback(mFrameCallback);
+        if (delayMillis > 0) {
+            choreographer.postFrameCallbackDelayed(mFrameCallback, delayMillis);
+        } else {
+            choreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    @Override
+    protected void cancelFrame() {
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+    }
+}
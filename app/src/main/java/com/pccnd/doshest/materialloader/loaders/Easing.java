@@ -0,0 +1,75 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.view.animation.Interpolator;
+
+/**
+ * 所有加载器共享的插值器.
+ *
+ * 插值器不可变，可以被任意多个动画同时使用；缓动曲线预先采样成表，
+ * 求值时只做一次查表和线性插值，不调用三角函数也不分配对象.
+ */
+final class Easing implements Interpolator {
+
+    /**
+     * 采样段数
+     */
+    private static final int SEGMENTS = 256;
+
+    /**
+     * 先加速后减速，等同于 AccelerateDecelerateInterpolator：(cos((t + 1)π) / 2) + 0.5.
+     * 线性插值误差不超过 π² / 16 / 256² ≈ 1e-5.
+     */
+    static final Interpolator ACCELERATE_DECELERATE = new Easing(new Curve() {
+        @Override
+        public double valueAt(double input) {
+            return Math.cos((input + 1) * Math.PI) / 2 + 0.5;
+        }
+    });
+
+    /**
+     * 匀速，等同于 LinearInterpolator，采样后线性插值没有误差
+     */
+    static final Interpolator LINEAR = new Easing(new Curve() {
+        @Override
+        public double valueAt(double input) {
+            return input;
+        }
+    });
+
+    /**
+     * 采样值，多存一个终点
+     */
+    private final float[] mTable = new float[SEGMENTS + 1];
+
+    /**
+     * 构造函数
+     *
+     * @param curve 缓动曲线
+     */
+    private Easing(Curve curve) {
+        for (int i = 0; i <= SEGMENTS; i++) {
+            mTable[i] = (float) curve.valueAt((double) i / SEGMENTS);
+        }
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input <= 0) {
+            return mTable[0];
+        }
+        if (input >= 1) {
+            return mTable[SEGMENTS];
+        }
+        float position = input * SEGMENTS;
+        int index = (int) position;
+        float start = mTable[index];
+        return start + (mTable[index + 1] - start) * (position - index);
+    }
+
+    /**
+     * 缓动曲线，只在采样时使用
+     */
+    private interface Curve {
+        double valueAt(double input);
+    }
+}
@@ -0,0 +1,602 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.view.View;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 等值面绘制.
+ *
+ * 每个圆是一个场源，场强为 (1 − d² / R²)²，影响半径 R 为圆半径的 {@link #REACH} 倍，之外为 0；
+ * 等值线取单独一个圆在自身半径处的场强 {@link #LEVEL}，因此单独一个圆的等值线恰好是它本身.
+ * 两个等大的圆在圆心距约 2.7 倍半径时开始融合，和路径绘制的粘连距离相当，再远就互不影响；
+ * 不再需要成对的贝塞尔粘连体，{@link #drawAdherentBody} 不绘制任何内容.
+ *
+ * 在至少 {@link #MIN_CELL_SIZE} 像素、每边不超过 {@link #MAX_CELLS} 格的网格上采样场强，
+ * 用 marching squares 提取等值线，首尾相连成闭合轮廓写入路径，用 {@link Canvas#drawPath} 绘制，
+ * 硬件加速画布同样支持，边缘随画笔抗锯齿.
+ *
+ * 网格较大时按行分块交给共享线程池计算，绘制线程不等待：这一帧先画上一次算完的轮廓，
+ * 算完后请求重绘，轮廓比圆的位置晚一帧. 网格较小或还没有算完过轮廓时在绘制线程直接计算.
+ */
+final class FieldMetaballRenderer extends MetaballRenderer {
+
+    /**
+     * 网格最小边长，单位像素
+     */
+    private static final float MIN_CELL_SIZE = 4f;
+
+    /**
+     * 网格每边最多的格数
+     */
+    private static final int MAX_CELLS = 96;
+
+    /**
+     * 影响半径与圆半径之比
+     */
+    private static final float REACH = 2f;
+
+    /**
+     * 等值线的场强，单独一个圆在自身半径处的场强
+     */
+    private static final float LEVEL = (1 - 1 / (REACH * REACH)) * (1 - 1 / (REACH * REACH));
+
+    /**
+     * 每块至少的行数，网格太小时不交给线程池
+     */
+    private static final int MIN_TILE_ROWS = 8;
+
+    /**
+     * 后台线程数，单核设备上为 0，始终在绘制线程计算
+     */
+    private static final int WORKER_COUNT = Runtime.getRuntime().availableProcessors() - 1;
+
+    /**
+     * 所有实例共享的线程池
+     */
+    private static ExecutorService sExecutor;
+
+    /**
+     * 后台算完后请求重绘的 View
+     */
+    private final View mView;
+
+    /**
+     * 场源，每个圆依次存圆心x、圆心y、影响半径、影响半径平方的倒数
+     */
+    private float[] mBlobs = new float[64];
+
+    /**
+     * 已写入的浮点数个数
+     */
+    private int mBlobCount;
+
+    /**
+     * 最近一次计算的场源，场源不变时不重新计算
+     */
+    private float[] mComputedBlobs = new float[64];
+
+    /**
+     * 最近一次计算的浮点数个数
+     */
+    private int mComputedBlobCount = -1;
+
+    /**
+     * 分块
+     */
+    private final Tile[] mTiles;
+
+    /**
+     * 最近一次计算的分块数
+     */
+    private int mTileCount;
+
+    /**
+     * 最近一次计算的网格行数和列数
+     */
+    private int mRows, mColumns;
+
+    /**
+     * 从某条网格边进入轮廓的线段，按边编号索引
+     */
+    private int[] mSegmentAt = new int[0];
+
+    /**
+     * 合并后每条线段离开轮廓的边和起点
+     */
+    private int[] mSegmentEnds = new int[256];
+    private float[] mSegmentPoints = new float[512];
+
+    /**
+     * 合并时线段是否已经连入轮廓
+     */
+    private boolean[] mVisited = new boolean[256];
+
+    /**
+     * 绘制的轮廓
+     */
+    private Path mPath = new Path();
+
+    /**
+     * 后台写入的轮廓，算完后和 {@link #mPath} 交换
+     */
+    private Path mResultPath = new Path();
+
+    /**
+     * 是否已经有算完的轮廓
+     */
+    private boolean mHasContour;
+
+    /**
+     * 后台是否正在计算
+     */
+    private boolean mComputing;
+
+    /**
+     * 后台是否算完了新的轮廓，还没有交换
+     */
+    private boolean mResultReady;
+
+    /**
+     * 尚未完成的后台分块个数
+     */
+    private int mPendingTiles;
+
+    /**
+     * 当前画布
+     */
+    private Canvas mCanvas;
+
+    /**
+     * 当前画笔
+     */
+    private Paint mPaint;
+
+    FieldMetaballRenderer(View view) {
+        mView = view;
+        mPath.setFillType(Path.FillType.EVEN_ODD);
+        mResultPath.setFillType(Path.FillType.EVEN_ODD);
+        mTiles = new Tile[Math.max(1, WORKER_COUNT)];
+        for (int i = 0; i < mTiles.length; i++) {
+            mTiles[i] = new Tile(this);
+        }
+    }
+
+    @Override
+    void begin(Canvas canvas, Paint paint) {
+        mCanvas = canvas;
+        mPaint = paint;
+        mBlobCount = 0;
+    }
+
+    @Override
+    void drawCircle(float cx, float cy, float radius) {
+        if (mBlobCount + 4 > mBlobs.length) {
+            mBlobs = Arrays.copyOf(mBlobs, mBlobs.length * 2);
+        }
+        float reach = radius * REACH;
+        mBlobs[mBlobCount++] = cx;
+        mBlobs[mBlobCount++] = cy;
+        mBlobs[mBlobCount++] = reach;
+        mBlobs[mBlobCount++] = 1 / (reach * reach);
+    }
+
+    @Override
+    void drawAdherentBody(AdherentBody body) {
+    }
+
+    @Override
+    void end() {
+        if (mBlobCount > 0) {
+            render();
+        }
+        mCanvas = null;
+        mPaint = null;
+    }
+
+    /**
+     * 场源变化时重新计算轮廓，绘制最近算完的轮廓
+     */
+    private void render() {
+        synchronized (this) {
+
+            /* 后台算完的轮廓 */
+            if (mResultReady) {
+                Path path = mPath;
+                mPath = mResultPath;
+                mResultPath = path;
+                mResultReady = false;
+                mHasContour = true;
+            }
+
+            /* 后台还在计算，先画已有的轮廓，算完后会请求重绘 */
+            if (mComputing) {
+                mCanvas.drawPath(mPath, mPaint);
+                return;
+            }
+        }
+
+        if (!isComputed()) {
+            boolean parallel = layout();
+            if (parallel && mHasContour) {
+                synchronized (this) {
+                    mComputing = true;
+                    mPendingTiles = mTileCount;
+                }
+                ExecutorService executor = getExecutor();
+                for (int i = 0; i < mTileCount; i++) {
+                    executor.execute(mTiles[i]);
+                }
+            } else {
+                for (int i = 0; i < mTileCount; i++) {
+                    mTiles[i].evaluate();
+                }
+                merge(mPath);
+                mHasContour = true;
+            }
+        }
+        mCanvas.drawPath(mPath, mPaint);
+    }
+
+    /**
+     * 场源是否和最近一次计算的相同
+     *
+     * @return 相同时为 true
+     */
+    private boolean isComputed() {
+        if (mBlobCount != mComputedBlobCount) {
+            return false;
+        }
+        for (int i = 0; i < mBlobCount; i++) {
+            if (mBlobs[i] != mComputedBlobs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计算网格范围并分块，记下这次计算的场源
+     *
+     * @return 是否交给线程池计算
+     */
+    private boolean layout() {
+        if (mComputedBlobs.length < mBlobCount) {
+            mComputedBlobs = new float[mBlobs.length];
+        }
+        System.arraycopy(mBlobs, 0, mComputedBlobs, 0, mBlobCount);
+        mComputedBlobCount = mBlobCount;
+
+        /* 影响半径的包围盒，不裁剪到画布，边框上场强为 0，轮廓总是闭合 */
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < mBlobCount; i += 4) {
+            float reach = mBlobs[i + 2];
+            left = Math.min(left, mBlobs[i] - reach);
+            top = Math.min(top, mBlobs[i + 1] - reach);
+            right = Math.max(right, mBlobs[i] + reach);
+            bottom = Math.max(bottom, mBlobs[i + 1] + reach);
+        }
+
+        /* 包围盒较大时放大网格，四周各留一格，每边不超过 MAX_CELLS 格 */
+        float cellSize = Math.max(MIN_CELL_SIZE, Math.max(right - left, bottom - top) / (MAX_CELLS - 2));
+        left -= cellSize;
+        top -= cellSize;
+        mColumns = (int) Math.ceil((right - left) / cellSize) + 1;
+        mRows = (int) Math.ceil((bottom - top) / cellSize) + 1;
+
+        /* 按行分块 */
+        boolean parallel = WORKER_COUNT > 0 && mRows >= MIN_TILE_ROWS * 2;
+        mTileCount = parallel ? Math.max(1, Math.min(mTiles.length, mRows / MIN_TILE_ROWS)) : 1;
+        int tileRows = (mRows + mTileCount - 1) / mTileCount;
+        for (int i = 0; i < mTileCount; i++) {
+            mTiles[i].set(left, top, cellSize, mColumns, mRows, i * tileRows,
+                    Math.max(0, Math.min(tileRows, mRows - i * tileRows)), mBlobs, mBlobCount);
+        }
+        return parallel;
+    }
+
+    /**
+     * 把各块的线段首尾相连成闭合轮廓
+     *
+     * @param path 写入的路径
+     */
+    private void merge(Path path) {
+        path.rewind();
+        int segmentCount = 0;
+        for (int i = 0; i < mTileCount; i++) {
+            segmentCount += mTiles[i].segmentCount;
+        }
+        if (segmentCount == 0) {
+            return;
+        }
+
+        int edgeCount = (mRows + 1) * mColumns + mRows * (mColumns + 1);
+        if (mSegmentAt.length < edgeCount) {
+            mSegmentAt = new int[edgeCount];
+        }
+        Arrays.fill(mSegmentAt, 0, edgeCount, -1);
+        if (mSegmentEnds.length < segmentCount) {
+            mSegmentEnds = new int[Math.max(mSegmentEnds.length * 2, segmentCount)];
+            mSegmentPoints = new float[mSegmentEnds.length * 2];
+            mVisited = new boolean[mSegmentEnds.length];
+        }
+        Arrays.fill(mVisited, 0, segmentCount, false);
+
+        /* 合并各块的线段，按进入的边索引 */
+        int offset = 0;
+        for (int i = 0; i < mTileCount; i++) {
+            Tile tile = mTiles[i];
+            for (int j = 0; j < tile.segmentCount; j++) {
+                mSegmentAt[tile.starts[j]] = offset + j;
+            }
+            System.arraycopy(tile.ends, 0, mSegmentEnds, offset, tile.segmentCount);
+            System.arraycopy(tile.points, 0, mSegmentPoints, offset * 2, tile.segmentCount * 2);
+            offset += tile.segmentCount;
+        }
+
+        /* 每条线段离开的边就是下一条线段进入的边 */
+        for (int i = 0; i < segmentCount; i++) {
+            if (mVisited[i]) {
+                continue;
+            }
+            path.moveTo(mSegmentPoints[i * 2], mSegmentPoints[i * 2 + 1]);
+            mVisited[i] = true;
+            int next = mSegmentAt[mSegmentEnds[i]];
+            while (next >= 0 && !mVisited[next]) {
+                path.lineTo(mSegmentPoints[next * 2], mSegmentPoints[next * 2 + 1]);
+                mVisited[next] = true;
+                next = mSegmentAt[mSegmentEnds[next]];
+            }
+            path.close();
+        }
+    }
+
+    /**
+     * 后台分块完成，最后一块合并轮廓并请求重绘
+     */
+    private void finishTile() {
+        synchronized (this) {
+            if (--mPendingTiles > 0) {
+                return;
+            }
+        }
+        merge(mResultPath);
+        synchronized (this) {
+            mComputing = false;
+            mResultReady = true;
+        }
+        if (mView != null) {
+            mView.postInvalidate();
+        }
+    }
+
+    /**
+     * 共享线程池，首次需要并行时创建.
+     *
+     * 最低支持 Android 4.3，ForkJoinPool 要到 Android 5.0 才有，这里用固定大小的线程池
+     *
+     * @return 线程池
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(WORKER_COUNT, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "MetaballField");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * 网格分块，持有自己的场强和线段数组，各块之间不共享可写数据.
+     *
+     * 网格边按编号索引：第 r 行第 c 列格子的上边为 r * columns + c，
+     * 左边为 (rows + 1) * columns + r * (columns + 1) + c.
+     */
+    private static final class Tile implements Runnable {
+
+        final FieldMetaballRenderer renderer;
+
+        /**
+         * 网格左上角、格子边长和整个网格的列数、行数
+         */
+        float left, top, cellSize;
+        int columns, rows;
+
+        int firstRow;
+        int rowCount;
+
+        /**
+         * 场源的副本，后台计算时绘制线程可以继续写下一帧的场源
+         */
+        float[] blobs = new float[64];
+        int blobCount;
+
+        float[] values = new float[0];
+
+        /**
+         * 线段进入和离开轮廓的边，以及在进入的边上的起点
+         */
+        int[] starts = new int[128];
+        int[] ends = new int[128];
+        float[] points = new float[256];
+        int segmentCount;
+
+        /**
+         * 一格四个角的坐标和场强、四条边的编号，左上、右上、右下、左下，第 k 条边连接角 k 和角 k + 1
+         */
+        final float[] xs = new float[4];
+        final float[] ys = new float[4];
+        final float[] vs = new float[4];
+        final int[] edges = new int[4];
+
+        Tile(FieldMetaballRenderer renderer) {
+            this.renderer = renderer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                evaluate();
+            } finally {
+                renderer.finishTile();
+            }
+        }
+
+        /**
+         * 设置这一块的网格范围和场源
+         */
+        void set(float left, float top, float cellSize, int columns, int rows, int firstRow, int rowCount,
+                 float[] blobs, int blobCount) {
+            this.left = left;
+            this.top = top;
+            this.cellSize = cellSize;
+            this.columns = columns;
+            this.rows = rows;
+            this.firstRow = firstRow;
+            this.rowCount = rowCount;
+            if (this.blobs.length < blobCount) {
+                this.blobs = new float[blobs.length];
+            }
+            System.arraycopy(blobs, 0, this.blobs, 0, blobCount);
+            this.blobCount = blobCount;
+        }
+
+        /**
+         * 计算一块的场强并提取等值线
+         */
+        void evaluate() {
+            segmentCount = 0;
+            if (rowCount == 0) {
+                return;
+            }
+
+            /* 采样点场强 */
+            int points = columns + 1;
+            float[] values = ensureValues(points * (rowCount + 1));
+            for (int row = 0; row <= rowCount; row++) {
+                float y = top + (firstRow + row) * cellSize;
+                for (int column = 0; column < points; column++) {
+                    values[row * points + column] = field(left + column * cellSize, y);
+                }
+            }
+
+            /* 逐格提取，整格在内部或外部时跳过 */
+            int verticalEdges = (rows + 1) * columns;
+            for (int row = 0; row < rowCount; row++) {
+                int gridRow = firstRow + row;
+                float y0 = top + gridRow * cellSize;
+                for (int column = 0; column < columns; column++) {
+                    float v0 = values[row * points + column];
+                    float v1 = values[row * points + column + 1];
+                    float v2 = values[(row + 1) * points + column + 1];
+                    float v3 = values[(row + 1) * points + column];
+                    int index = (v0 >= LEVEL ? 1 : 0) | (v1 >= LEVEL ? 2 : 0)
+                            | (v2 >= LEVEL ? 4 : 0) | (v3 >= LEVEL ? 8 : 0);
+                    if (index == 0 || index == 15) {
+                        continue;
+                    }
+                    float x0 = left + column * cellSize;
+                    xs[0] = xs[3] = x0;
+                    xs[1] = xs[2] = x0 + cellSize;
+                    ys[0] = ys[1] = y0;
+                    ys[2] = ys[3] = y0 + cellSize;
+                    vs[0] = v0;
+                    vs[1] = v1;
+                    vs[2] = v2;
+                    vs[3] = v3;
+                    edges[0] = gridRow * columns + column;
+                    edges[1] = verticalEdges + gridRow * (columns + 1) + column + 1;
+                    edges[2] = (gridRow + 1) * columns + column;
+                    edges[3] = verticalEdges + gridRow * (columns + 1) + column;
+                    cell(index);
+                }
+            }
+        }
+
+        /**
+         * 某点的场强
+         *
+         * @param x 坐标x
+         * @param y 坐标y
+         * @return 场强
+         */
+        private float field(float x, float y) {
+            float sum = 0;
+            for (int i = 0; i < blobCount; i += 4) {
+                float differenceX = x - blobs[i];
+                float differenceY = y - blobs[i + 1];
+                float falloff = 1 - (differenceX * differenceX + differenceY * differenceY) * blobs[i + 3];
+                if (falloff > 0) {
+                    sum += falloff * falloff;
+                }
+            }
+            return sum;
+        }
+
+        float[] ensureValues(int count) {
+            if (values.length < count) {
+                values = new float[count];
+            }
+            return values;
+        }
+
+        /**
+         * 一格内的等值线段.
+         *
+         * 内部的角 k 之后是外部的角时，等值线从边 k 进入这一格，内部在线段右侧；
+         * 对角两个角在内部时，中心在内部则连到下一条边，否则连到上一条边.
+         */
+        void cell(int index) {
+            boolean saddle = index == 5 || index == 10;
+            boolean connected = saddle && (vs[0] + vs[1] + vs[2] + vs[3]) / 4 >= LEVEL;
+            for (int k = 0; k < 4; k++) {
+                if (!isInside(index, k) || isInside(index, (k + 1) & 3)) {
+                    continue;
+                }
+                int exit;
+                if (saddle) {
+                    exit = connected ? (k + 1) & 3 : (k + 3) & 3;
+                } else {
+                    exit = k;
+                    while (isInside(index, exit) || !isInside(index, (exit + 1) & 3)) {
+                        exit = (exit + 1) & 3;
+                    }
+                }
+                addSegment(k, exit);
+            }
+        }
+
+        private static boolean isInside(int index, int corner) {
+            return (index & (1 << corner)) != 0;
+        }
+
+        /**
+         * 从边 entry 进入、从边 exit 离开的线段，起点是等值线与边 entry 的交点
+         */
+        private void addSegment(int entry, int exit) {
+            if (segmentCount == starts.length) {
+                starts = Arrays.copyOf(starts, segmentCount * 2);
+                ends = Arrays.copyOf(ends, segmentCount * 2);
+                points = Arrays.copyOf(points, segmentCount * 4);
+            }
+            int next = (entry + 1) & 3;
+            float t = (LEVEL - vs[entry]) / (vs[next] - vs[entry]);
+            starts[segmentCount] = edges[entry];
+            ends[segmentCount] = edges[exit];
+            points[segmentCount * 2] = xs[entry] + (xs[next] - xs[entry]) * t;
+            points[segmentCount * 2 + 1] = ys[entry] + (ys[next] - ys[entry]) * t;
+            segmentCount++;
+        }
+    }
+}
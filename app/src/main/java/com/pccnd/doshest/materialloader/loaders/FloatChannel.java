@@ -0,0 +1,123 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.view.animation.Interpolator;
+
+/**
+ * 动画通道，描述一个浮点数随时间的变化：起止值、时长、重复方式和插值器.
+ *
+ * 通道不可变，在初始化时创建，每帧用 {@link MaterialLoader#onFrame(long)} 的播放时间直接求值，
+ * 返回基本类型的 float，不经过 ValueAnimator.getAnimatedValue() 的装箱.
+ */
+final class FloatChannel {
+
+    /**
+     * 只播放一次，开始前停在起始值，结束后停在结束值
+     */
+    private static final int ONCE = 0;
+
+    /**
+     * 无限重复，每次从起始值开始
+     */
+    private static final int RESTART = 1;
+
+    /**
+     * 无限重复，奇数次反向
+     */
+    private static final int REVERSE = 2;
+
+    private final float mFrom;
+    private final float mTo;
+    private final long mDelay;
+    private final long mDuration;
+    private final int mRepeatMode;
+    private final Interpolator mInterpolator;
+
+    private FloatChannel(float from, float to, long delay, long duration, int repeatMode, Interpolator interpolator) {
+        mFrom = from;
+        mTo = to;
+        mDelay = delay;
+        mDuration = duration;
+        mRepeatMode = repeatMode;
+        mInterpolator = interpolator;
+    }
+
+    /**
+     * 只播放一次的通道
+     *
+     * @param from         起始值
+     * @param to           结束值
+     * @param delay        开始的时间
+     * @param duration     时长
+     * @param interpolator 插值器
+     * @return 通道
+     */
+    static FloatChannel once(float from, float to, long delay, long duration, Interpolator interpolator) {
+        return new FloatChannel(from, to, delay, duration, ONCE, interpolator);
+    }
+
+    /**
+     * 无限重复的通道，等同于 RESTART 模式
+     *
+     * @param from         起始值
+     * @param to           结束值
+     * @param duration     时长
+     * @param interpolator 插值器
+     * @return 通道
+     */
+    static FloatChannel repeat(float from, float to, long duration, Interpolator interpolator) {
+        return new FloatChannel(from, to, 0, duration, RESTART, interpolator);
+    }
+
+    /**
+     * 往返重复的通道，等同于 REVERSE 模式
+     *
+     * @param from         起始值
+     * @param to           结束值
+     * @param duration     单程时长
+     * @param interpolator 插值器
+     * @return 通道
+     */
+    static FloatChannel reverse(float from, float to, long duration, Interpolator interpolator) {
+        return new FloatChannel(from, to, 0, duration, REVERSE, interpolator);
+    }
+
+    /**
+     * 某一时刻的值
+     *
+     * @param time 播放时间，单位毫秒
+     * @return 值
+     */
+    float valueAt(long time) {
+        return mFrom + (mTo - mFrom) * mInterpolator.getInterpolation(fractionAt(time));
+    }
+
+    /**
+     * 某一时刻未经插值的进度
+     *
+     * @param time 播放时间，单位毫秒
+     * @return 0到1之间的进度
+     */
+    float fractionAt(long time) {
+        time -= mDelay;
+        if (mRepeatMode == ONCE) {
+            if (time <= 0) {
+                return 0;
+            }
+            return time >= mDuration ? 1 : (float) time / mDuration;
+        }
+        if (time < 0) {
+            return 0;
+        }
+        float fraction = (float) (time % mDuration) / mDuration;
+        return mRepeatMode == REVERSE && (time / mDuration) % 2 == 1 ? 1 - fraction : fraction;
+    }
+
+    /**
+     * 结束值
+     *
+     * @return 结束值
+     */
+    float getTo() {
+        return mTo;
+    }
+}
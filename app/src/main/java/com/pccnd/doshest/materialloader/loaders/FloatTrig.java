@@ -0,0 +1,92 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+/**
+ * 单精度三角函数，角度单位均为度.
+ *
+ * {@link #sin(float)} 和 {@link #cos(float)} 查表并线性插值，用于每帧都要计算的轨道角度，
+ * 角度在 ±2000 度以内时与 {@link Math#sin(double)} 的误差不超过 1e-5，半径 100 像素的轨道上偏差约千分之一像素.
+ * 固定的贝塞尔曲线偏移角度用 {@link #rotation(float)} 预先算好正弦和余弦.
+ */
+final class FloatTrig {
+
+    /**
+     * 一周的采样个数，必须是2的幂
+     */
+    private static final int TABLE_SIZE = 1024;
+
+    /**
+     * 采样下标掩码
+     */
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+    /**
+     * 角度换算为采样下标的比率
+     */
+    private static final float DEGREES_TO_INDEX = TABLE_SIZE / 360f;
+
+    /**
+     * 正弦表，多存一个采样点以便插值时不用回绕
+     */
+    private static final float[] SIN_TABLE = new float[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SIN_TABLE[i] = (float) Math.sin(2 * Math.PI * i / TABLE_SIZE);
+        }
+    }
+
+    private FloatTrig() {
+    }
+
+    /**
+     * 正弦
+     *
+     * @param degrees 角度，可以为负数或大于360
+     * @return 正弦值
+     */
+    static float sin(float degrees) {
+        float index = degrees * DEGREES_TO_INDEX;
+        int floor = (int) index;
+        if (index < floor) {
+            floor--;
+        }
+        float fraction = index - floor;
+        floor &= TABLE_MASK;
+        float start = SIN_TABLE[floor];
+        return start + (SIN_TABLE[floor + 1] - start) * fraction;
+    }
+
+    /**
+     * 余弦
+     *
+     * @param degrees 角度，可以为负数或大于360
+     * @return 余弦值
+     */
+    static float cos(float degrees) {
+        return sin(degrees + 90);
+    }
+
+    /**
+     * 预先计算固定角度的旋转因子
+     *
+     * @param degrees 角度
+     * @return 旋转因子
+     */
+    static Rotation rotation(float degrees) {
+        double radians = Math.toRadians(degrees);
+        return new Rotation((float) Math.cos(radians), (float) Math.sin(radians));
+    }
+
+    /**
+     * 旋转因子，固定角度的余弦和正弦
+     */
+    static final class Rotation {
+        final float cos;
+        final float sin;
+
+        Rotation(float cos, float sin) {
+            this.cos = cos;
+            this.sin = sin;
+        }
+    }
+}
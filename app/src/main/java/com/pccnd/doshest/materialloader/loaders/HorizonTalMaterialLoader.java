@@ -1,14 +1,8 @@
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
-import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.Animation;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,7 +10,7 @@ import java.util.List;
 /**
  * Created by doshest on 2015/11/7.
  */
-public class HorizonTalMaterialLoader extends View {
+public class HorizonTalMaterialLoader extends MetaballMaterialLoader {
 
     /**
      * 宽度
@@ -48,34 +42,54 @@ public class HorizonTalMaterialLoader extends View {
      */
     private float mDivideWidth = 3 * mCurrentStaticCircleRadius;
 
+    /**
+     * 相邻静态圆圆心的间距
+     */
+    private float mStaticCircleSpacing = mCurrentStaticCircleRadius * 2 + mDivideWidth;
+
     /**
      * 最大粘连长度
      */
     private float mMaxAdherentLength = 3.5f * mCurrentStaticCircleRadius;
 
     /**
-     * 全局静态圆变量
+     * 最大粘连长度的平方
      */
-    private Circle mStaticCircle;
+    private float mMaxAdherentLengthSquared = mMaxAdherentLength * mMaxAdherentLength;
 
     /**
      * 动态圆
      */
     private Circle mDynamicCircle = new Circle();
+
+    /**
+     * 动态圆x坐标
+     */
+    private FloatChannel mDynamicXChannel;
     /**
      * 维护静态圆容器
      */
     private List<Circle> mStaticCircles = new ArrayList<Circle>();
 
     /**
-     * 画笔
+     * 上一帧可能粘连的第一个静态圆
      */
-    private Paint mPaint = new Paint();
+    private int mFirstCandidate;
 
     /**
-     * 路径
+     * 上一帧可能粘连的最后一个静态圆
      */
-    private Path mPath = new Path();
+    private int mLastCandidate = -1;
+
+    /**
+     * 贝塞尔曲线偏移角度
+     */
+    private static final FloatTrig.Rotation ADHERENT_OFFSET = FloatTrig.rotation(45);
+
+    /**
+     * 粘连体
+     */
+    private AdherentBody mAdherentBody = new AdherentBody();
 
     /**
      * 默认颜色
@@ -121,6 +135,9 @@ public class HorizonTalMaterialLoader extends View {
      */
     private void init() {
 
+        /* 粘连判断结果 */
+        mAdhesion = new AdhesionResult(mStaticCircleCount);
+
         /* 画笔 */
         mPaint.setColor(mColor);
         mPaint.setStyle(Paint.Style.FILL);
@@ -134,18 +151,20 @@ public class HorizonTalMaterialLoader extends View {
         mDynamicCircle.radius = mCurrentStaticCircleRadius * 3 / 4;;
         mDynamicCircle.x = mDynamicCircle.radius;
         mDynamicCircle.y = mHeight / 2;
+        mDynamicXChannel = FloatChannel.reverse(mDynamicCircle.radius, mWidth - mDynamicCircle.radius, 2500, Easing.ACCELERATE_DECELERATE);
 
         /* 静态圆 */
         for (int i = 0; i < mStaticCircleCount; i++) {
-            mStaticCircle = new Circle();
-            mStaticCircle.radius = mCurrentStaticCircleRadius;
-            mStaticCircle.x = (mStaticCircle.radius * 2 + mDivideWidth) * (i + 1);
-            mStaticCircle.y = mHeight / 2;
-            mStaticCircles.add(mStaticCircle);
+            Circle staticCircle = new Circle();
+            staticCircle.radius = mCurrentStaticCircleRadius;
+            staticCircle.x = mStaticCircleSpacing * (i + 1);
+            staticCircle.y = mHeight / 2;
+            mStaticCircles.add(staticCircle);
+            mAdhesion.set(i, false, staticCircle.radius);
         }
 
-        /* 开始动画 */
-        startAnim();
+        /* 初始状态 */
+        onFrame(0);
     }
 
     /**
@@ -160,278 +179,110 @@ public class HorizonTalMaterialLoader extends View {
     }
 
     /**
-     * 绘制
+     * 提交圆和粘连体
      *
-     * @param canvas
+     * @param renderer
      */
     @Override
-    protected void onDraw(Canvas canvas) {
+    void onDrawMetaballs(MetaballRenderer renderer) {
 
         /* 动态圆 */
-        canvas.drawCircle(mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius, mPaint);
+        renderer.drawCircle(mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius);
 
         /* 静态圆 */
         for (int i = 0; i < mStaticCircleCount; i++) {
-            mStaticCircle = mStaticCircles.get(i);
+            Circle staticCircle = mStaticCircles.get(i);
+            renderer.drawCircle(staticCircle.x, staticCircle.y, mAdhesion.radius[i]);
 
             /* 判断哪个圆可以作贝塞尔曲线 */
-            if (doAdhere(i)) {
-                canvas.drawCircle(mStaticCircle.x, mStaticCircle.y, mCurrentStaticCircleRadius, mPaint);
-                // drawAdherentBody(canvas, i);
-                Path path = drawAdherentBody(mStaticCircle.x, mStaticCircle.y, mCurrentStaticCircleRadius,45,
-                        mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius,45);
-                canvas.drawPath(path, mPaint);
-
-            } else {
-                canvas.drawCircle(mStaticCircle.x, mStaticCircle.y, mStaticCircle.radius, mPaint);
+            if (isAdhering(i)) {
+                mAdherentBody.set(staticCircle.x, staticCircle.y, mAdhesion.radius[i], ADHERENT_OFFSET,
+                        mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius, ADHERENT_OFFSET);
+                renderer.drawAdherentBody(mAdherentBody);
             }
         }
     }
 
     /**
-     * 画粘连体（通用方法）
+     * 粘连时按距离放大后的静态圆半径
      *
-     * @param cx1     圆心x1
-     * @param cy1     圆心y1
-     * @param r1      圆半径r1
-     * @param offset1 贝塞尔曲线偏移角度offset1
-     * @param cx2     圆心x2
-     * @param cy2     圆心y2
-     * @param r2      圆半径r2
-     * @param offset2 贝塞尔曲线偏移角度offset2
-     * @return
+     * @param radius          静态圆半径
+     * @param distanceSquared 两圆心距离的平方
+     * @return 放大后的半径
      */
-    private Path drawAdherentBody(float cx1,float cy1,float r1,float offset1,float cx2,float cy2,float r2,float offset2) {
-
-        /* 求三角函数 */
-        float degrees =(float) Math.toDegrees(Math.atan(Math.abs(cy2 - cy1) / Math.abs(cx2 - cx1)));
-
-        /* 根据圆1与圆2的相对位置求四个点 */
-        float differenceX = cx1 - cx2;
-        float differenceY = cy1 - cy2;
-
-        /* 两条贝塞尔曲线的四个端点 */
-        float x1,y1,x2,y2,x3,y3,x4,y4;
-
-        /* 圆1在圆2的下边 */
-        if (differenceX == 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-
-        }
-        /* 圆1在圆2的上边 */
-        else if (differenceX == 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-
-        }
-        /* 圆1在圆2的右边 */
-        else if (differenceX > 0 && differenceY == 0) {
-            x2 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的左边 */
-        else if (differenceX < 0 && differenceY == 0 ) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的右下角 */
-        else if (differenceX > 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        /* 圆1在圆2的左上角 */
-        else if (differenceX < 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的左下角 */
-        else if (differenceX < 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的右上角 */
-        else {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 + r1* (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-
-        /* 贝塞尔曲线的控制点 */
-        float anchorX1,anchorY1,anchorX2,anchorY2;
-
-        /* 圆1大于圆2 */
-        if (r1 > r2) {
-            anchorX1 = (x2 + x3) / 2;
-            anchorY1 = (y2 + y3) / 2;
-            anchorX2 = (x1 + x4) / 2;
-            anchorY2 = (y1 + y4) / 2;
-        }
-        /* 圆1小于或等于圆2 */
-        else {
-            anchorX1 = (x1 + x4) / 2;
-            anchorY1 = (y1 + y4) / 2;
-            anchorX2 = (x2 + x3) / 2;
-            anchorY2 = (y2 + y3) / 2;
-        }
-
-        /* 画粘连体 */
-        Path path = new Path();
-        path.reset();
-        path.moveTo(x1, y1);
-        path.quadTo(anchorX1, anchorY1, x2, y2);
-        path.lineTo(x4, y4);
-        path.quadTo(anchorX2, anchorY2, x3, y3);
-        path.lineTo(x1, y1);
-
-        return path;
+    private float getAdherentRadius(float radius, float distanceSquared) {
+        float distance = (float) Math.sqrt(distanceSquared);
+        float scale = mMaxStaticCircleRadiusScaleRate -  mMaxStaticCircleRadiusScaleRate * (distance / mMaxAdherentLength);
+        return radius * (1 + scale);
     }
 
     /**
-     * 画粘连体（专用方法）
+     * 判断粘连范围，动态改变静态圆大小.
      *
-     * @param canvas
-     * @param position
+     * 静态圆等距排列，只有动态圆左右最大粘连长度以内的静态圆才可能粘连，
+     * 由动态圆的x坐标直接求出这几个候选，开销与静态圆个数无关.
      */
-    @Deprecated
-    private void drawAdherentBody(Canvas canvas,int position) {
-
-        mStaticCircle = mStaticCircles.get(position);
-
-        /* 根据动态球与静态球的相对位置计算因子 */
-        float difference = mDynamicCircle.x - mStaticCircle.x;
-        float factor;
-        if (difference > 0)
-            factor = 1;
-        else
-            factor = -1;
-
-         /* 求三角函数 */
-        float sin = (float) Math.sin(Math.toRadians(45));
-        float cos = (float) Math.cos(Math.toRadians(45));
-
-        /* 四个点 */
-        float staticX1 = mStaticCircle.x + factor * mCurrentStaticCircleRadius * cos;
-        float staticY1 = mStaticCircle.y + factor * mCurrentStaticCircleRadius * sin;
-
-        float staticX2 = mStaticCircle.x + factor * mCurrentStaticCircleRadius * cos;
-        float staticY2 = mStaticCircle.y - factor * mCurrentStaticCircleRadius * sin;
-
-        float dynamicX1 = mDynamicCircle.x - factor * mDynamicCircle.radius * cos;
-        float dynamicY1 = mDynamicCircle.y + factor * mDynamicCircle.radius * sin;
-
-        float dynamicX2 = mDynamicCircle.x - factor * mDynamicCircle.radius * cos;
-        float dynamicY2 = mDynamicCircle.y - factor * mDynamicCircle.radius * sin;
+    @Override
+    void evaluateAdhesion() {
 
-        /* 控制点 */
-        float anchorX1 = ( staticX1 + dynamicX2 ) / 2;
-        float anchorY1 = ( staticY1 + dynamicY2 ) / 2 - factor * 3;
+        /* 恢复上一帧的候选 */
+        for (int i = mFirstCandidate; i <= mLastCandidate; i++) {
+            mAdhesion.set(i, false, mStaticCircles.get(i).radius);
+        }
 
-        float anchorX2 = ( staticX2 + dynamicX1 ) / 2;
-        float anchorY2 = ( staticY2 + dynamicY1 ) / 2 + factor * 3;
+        /* 本帧的候选，第i个静态圆的x坐标为 mStaticCircleSpacing * (i + 1) */
+        mFirstCandidate = Math.max(0, (int) Math.ceil((mDynamicCircle.x - mMaxAdherentLength) / mStaticCircleSpacing) - 1);
+        mLastCandidate = Math.min(mStaticCircleCount - 1, (int) Math.floor((mDynamicCircle.x + mMaxAdherentLength) / mStaticCircleSpacing) - 1);
 
+        for (int i = mFirstCandidate; i <= mLastCandidate; i++) {
+            Circle staticCircle = mStaticCircles.get(i);
+            float distanceSquared = AdhesionResult.distanceSquared(mDynamicCircle.x, mDynamicCircle.y, staticCircle.x, staticCircle.y);
 
-        /* 画贝塞尔曲线 */
-        mPath.reset();
-        mPath.moveTo(staticX1, staticY1);
-        mPath.quadTo(anchorX1, anchorY1, dynamicX1, dynamicY1);
-        mPath.lineTo(dynamicX2, dynamicY2);
-        mPath.quadTo(anchorX2, anchorY2, staticX2, staticY2);
-        mPath.lineTo(staticX1, staticY1);
-        canvas.drawPath(mPath, mPaint);
+            /* 粘连时按距离放大静态圆 */
+            if (distanceSquared < mMaxAdherentLengthSquared) {
+                mAdhesion.set(i, true, getAdherentRadius(staticCircle.radius, distanceSquared));
+            }
+        }
     }
 
-
-
     /**
-     * 判断粘连范围，动态改变静态圆大小
+     * 动态圆在两端之间往返，单程 2500 毫秒
      *
-     * @param position
-     * @return
+     * @param playTime
      */
-    private boolean doAdhere(int position) {
-
-        mStaticCircle = mStaticCircles.get(position);
-
-        /* 半径变化 */
-        float distance = (float) Math.sqrt(Math.pow(mDynamicCircle.x - mStaticCircle.x, 2) + Math.pow(mDynamicCircle.y - mStaticCircle.y, 2));
-        float scale = mMaxStaticCircleRadiusScaleRate -  mMaxStaticCircleRadiusScaleRate * (distance / mMaxAdherentLength);
-        mCurrentStaticCircleRadius = mStaticCircle.radius * (1 + scale);
-
-        /* 判断是否可以作贝塞尔曲线 */
-        if (distance < mMaxAdherentLength)
-            return true;
-        else
-            return false;
+    @Override
+    protected boolean onFrame(long playTime) {
+        float x = mDynamicXChannel.valueAt(playTime);
+        boolean changed = x != mDynamicCircle.x;
+        mDynamicCircle.x = x;
+        return changed;
     }
 
     /**
-     * 开始动画
+     * 姿态：动态圆，然后是所有静态圆
+     *
+     * @param playTime
+     * @param out
      */
-    private void startAnim() {
-
-        /* 动态圆的x坐标动画 */
-        ValueAnimator xValueAnimator = ValueAnimator.ofFloat(mDynamicCircle.x, mWidth - mDynamicCircle.radius);
-        xValueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        xValueAnimator.setDuration(2500);
-        xValueAnimator.setRepeatCount(Animation.INFINITE);
-        xValueAnimator.setRepeatMode(Animation.REVERSE);
-        xValueAnimator.start();
-        xValueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                mDynamicCircle.x = (float) animation.getAnimatedValue();
-                invalidate();
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        float x = mDynamicXChannel.valueAt(playTime);
+        float y = mDynamicCircle.y;
+        out.reset(1 + mStaticCircleCount);
+        out.set(0, x, y, mDynamicCircle.radius);
+        for (int i = 0; i < mStaticCircleCount; i++) {
+            Circle staticCircle = mStaticCircles.get(i);
+            float radius = staticCircle.radius;
+            float distanceSquared = AdhesionResult.distanceSquared(x, y, staticCircle.x, staticCircle.y);
+            if (distanceSquared < mMaxAdherentLengthSquared) {
+                radius = getAdherentRadius(radius, distanceSquared);
+                out.setAdhering(0);
+                out.setAdhering(i + 1);
             }
-        });
+            out.set(i + 1, staticCircle.x, staticCircle.y, radius);
+        }
     }
+
     /**
      * 圆类
      */
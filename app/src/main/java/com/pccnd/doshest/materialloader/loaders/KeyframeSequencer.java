@@ -0,0 +1,136 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+/**
+ * 循环播放的关键帧表.
+ *
+ * 在初始化时一次性登记每一步的开始时间和时长，周期为所有步骤中最晚的结束时间.
+ * 每帧只按周期内的时间查表，不创建任何对象.
+ */
+final class KeyframeSequencer {
+
+    /**
+     * 每一步的开始时间，单位毫秒
+     */
+    private final long[] mStartTimes;
+
+    /**
+     * 每一步的时长，单位毫秒
+     */
+    private final long[] mDurations;
+
+    /**
+     * 已登记的步数
+     */
+    private int mCount;
+
+    /**
+     * 周期，单位毫秒
+     */
+    private long mCycle;
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 步数
+     */
+    KeyframeSequencer(int capacity) {
+        mStartTimes = new long[capacity];
+        mDurations = new long[capacity];
+    }
+
+    /**
+     * 登记一步，开始时间不能早于上一步
+     *
+     * @param startTime 开始时间，单位毫秒
+     * @param duration  时长，单位毫秒
+     * @return 这一步的序号
+     */
+    int add(long startTime, long duration) {
+        mStartTimes[mCount] = startTime;
+        mDurations[mCount] = duration;
+        mCycle = Math.max(mCycle, startTime + duration);
+        return mCount++;
+    }
+
+    /**
+     * 紧接着最晚结束的一步登记下一步
+     *
+     * @param duration 时长，单位毫秒
+     * @return 这一步的序号
+     */
+    int append(long duration) {
+        return add(mCycle, duration);
+    }
+
+    /**
+     * 周期
+     *
+     * @return 毫秒
+     */
+    long getCycle() {
+        return mCycle;
+    }
+
+    /**
+     * 周期内的时间
+     *
+     * @param playTime 播放时间，单位毫秒
+     * @return 毫秒
+     */
+    long cycleTime(long playTime) {
+        return playTime % mCycle;
+    }
+
+    /**
+     * 第几步的开始时间
+     *
+     * @param step 序号
+     * @return 毫秒
+     */
+    long getStartTime(int step) {
+        return mStartTimes[step];
+    }
+
+    /**
+     * 第几步的结束时间
+     *
+     * @param step 序号
+     * @return 毫秒
+     */
+    long getEndTime(int step) {
+        return mStartTimes[step] + mDurations[step];
+    }
+
+    /**
+     * 周期内某个时间最后开始的一步
+     *
+     * @param cycleTime 周期内的时间，单位毫秒
+     * @return 序号，还没有任何一步开始时返回-1
+     */
+    int stepAt(long cycleTime) {
+
+        /* 开始时间有序，二分查找 */
+        int low = 0;
+        int high = mCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (mStartTimes[middle] <= cycleTime) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * 某一步内经过的时间，可能为负数或超过时长，由 {@link FloatChannel} 截断
+     *
+     * @param step      序号
+     * @param cycleTime 周期内的时间，单位毫秒
+     * @return 毫秒
+     */
+    long localTime(int step, long cycleTime) {
+        return cycleTime - mStartTimes[step];
+    }
+}
@@ -1,15 +1,9 @@
 
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
-import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.Animation;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +13,7 @@ import java.util.List;
  *
  *Created by doshest on 2015/11/7.
  */
-public class LinearMaterialLoader extends View {
+public class LinearMaterialLoader extends MetaballMaterialLoader {
 
     /**
      * 宽度
@@ -57,14 +51,14 @@ public class LinearMaterialLoader extends View {
     private float mMaxAdherentLength = 3.5f * mCurrentStaticCircleRadius;
 
     /**
-     * 静态圆
+     * 最大粘连长度的平方
      */
-    private Circle mStaticCircle = new Circle();
+    private float mMaxAdherentLengthSquared = mMaxAdherentLength * mMaxAdherentLength;
 
     /**
-     * 动态圆
+     * 静态圆
      */
-    private Circle mDynamicCircle;
+    private Circle mStaticCircle = new Circle();
 
     /**
      * 维护静态圆容器
@@ -72,10 +66,25 @@ public class LinearMaterialLoader extends View {
     private List<Circle> mDynamicCircles = new ArrayList<Circle>();
 
     /**
-     * 画笔
+     * 动态圆的位移
+     */
+    private FloatChannel mDynamicOffsetChannel;
+
+    /**
+     * 静态圆半径
      */
-    private Paint mPaint = new Paint();
-    
+    private FloatChannel mStaticRadiusChannel;
+
+    /**
+     * 贝塞尔曲线偏移角度
+     */
+    private static final FloatTrig.Rotation ADHERENT_OFFSET = FloatTrig.rotation(45);
+
+    /**
+     * 粘连体
+     */
+    private AdherentBody mAdherentBody = new AdherentBody();
+
     /**
      * 默认颜色
      */
@@ -119,6 +128,9 @@ public class LinearMaterialLoader extends View {
      */
     private void init() {
         
+        /* 粘连判断结果 */
+        mAdhesion = new AdhesionResult(mDynamicCircleCount);
+
         /* 画笔 */
         mPaint.setColor(mColor);
         mPaint.setStyle(Paint.Style.FILL);
@@ -135,15 +147,19 @@ public class LinearMaterialLoader extends View {
         
         /* 动态圆 */
         for (int i = 0; i < mDynamicCircleCount; i++) {
-            mDynamicCircle = new Circle();
-            mDynamicCircle.radius = mCurrentStaticCircleRadius / 3 * 2;
-            mDynamicCircle.x = mStaticCircle.x - (mStaticCircle.radius * 2 + mDivideWidth) * (i + 1);
-            mDynamicCircle.y = mHeight / 2;
-            mDynamicCircles.add(mDynamicCircle);
+            Circle dynamicCircle = new Circle();
+            dynamicCircle.radius = mCurrentStaticCircleRadius / 3 * 2;
+            dynamicCircle.x = mStaticCircle.x - (mStaticCircle.radius * 2 + mDivideWidth) * (i + 1);
+            dynamicCircle.y = mHeight / 2;
+            mDynamicCircles.add(dynamicCircle);
         }
         
-        /* 开始动画 */
-        startAnim();
+        /* 动画通道 */
+        mDynamicOffsetChannel = FloatChannel.reverse(0, (1 + mDynamicCircleCount) * (mStaticCircle.radius * 2 + mDivideWidth), 1600, Easing.ACCELERATE_DECELERATE);
+        mStaticRadiusChannel = FloatChannel.reverse(mStaticCircle.radius, mStaticCircle.radius * (1 + mMaxStaticCircleRadiusScaleRate), 800, Easing.ACCELERATE_DECELERATE);
+
+        /* 初始状态 */
+        onFrame(0);
     }
 
     /**
@@ -158,234 +174,90 @@ public class LinearMaterialLoader extends View {
     }
 
     /**
-     * 绘制
-     * 
-     * @param canvas
+     * 提交圆和粘连体
+     *
+     * @param renderer
      */
     @Override
-    protected void onDraw(Canvas canvas) {
+    void onDrawMetaballs(MetaballRenderer renderer) {
 
         /* 静态圆 */
-        canvas.drawCircle(mStaticCircle.x, mStaticCircle.y, mCurrentStaticCircleRadius, mPaint);
+        renderer.drawCircle(mStaticCircle.x, mStaticCircle.y, mCurrentStaticCircleRadius);
         
         /* 动态圆 */
         for (int i = 0; i < mDynamicCircleCount; i++) {
-            mDynamicCircle = mDynamicCircles.get(i);
+            Circle dynamicCircle = mDynamicCircles.get(i);
             
-            canvas.drawCircle(mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius, mPaint);
+            renderer.drawCircle(dynamicCircle.x, dynamicCircle.y, dynamicCircle.radius);
             
             /* 判断哪个圆可以作贝塞尔曲线 */
-            if (doAdhere()) {
-                Path path = drawAdherentBody(mStaticCircle.x, mStaticCircle.y, mCurrentStaticCircleRadius,45,
-                        mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius,45);
-                canvas.drawPath(path,mPaint);
-      
-            } 
+            if (isAdhering(i)) {
+                mAdherentBody.set(mStaticCircle.x, mStaticCircle.y, mAdhesion.radius[i], ADHERENT_OFFSET,
+                        dynamicCircle.x, dynamicCircle.y, dynamicCircle.radius, ADHERENT_OFFSET);
+                renderer.drawAdherentBody(mAdherentBody);
+            }
         }
     }
 
     /**
-     * 画粘连体
-     *
-     * @param cx1     圆心x1
-     * @param cy1     圆心y1
-     * @param r1      圆半径r1
-     * @param offset1 贝塞尔曲线偏移角度offset1
-     * @param cx2     圆心x2
-     * @param cy2     圆心y2
-     * @param r2      圆半径r2
-     * @param offset2 贝塞尔曲线偏移角度offset2
-     * @return
+     * 判断粘连范围
      */
-    private Path drawAdherentBody(float cx1,float cy1,float r1,float offset1,float cx2,float cy2,float r2,float offset2) {
-        
-        /* 求三角函数 */
-        float degrees =(float) Math.toDegrees(Math.atan(Math.abs(cy2 - cy1) / Math.abs(cx2 - cx1)));
-        
-        /* 根据圆1与圆2的相对位置求四个点 */
-        float differenceX = cx1 - cx2;
-        float differenceY = cy1 - cy2;
-
-        /* 两条贝塞尔曲线的四个端点 */
-        float x1,y1,x2,y2,x3,y3,x4,y4;
-        
-        /* 圆1在圆2的下边 */
-        if (differenceX == 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-
-        }
-        /* 圆1在圆2的上边 */
-        else if (differenceX == 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-
-        }
-        /* 圆1在圆2的右边 */
-        else if (differenceX > 0 && differenceY == 0) {
-            x2 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        } 
-        /* 圆1在圆2的左边 */
-        else if (differenceX < 0 && differenceY == 0 ) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的右下角 */
-        else if (differenceX > 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        /* 圆1在圆2的左上角 */
-        else if (differenceX < 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的左下角 */
-        else if (differenceX < 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的右上角 */
-        else {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 + r1* (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        
-        /* 贝塞尔曲线的控制点 */
-        float anchorX1,anchorY1,anchorX2,anchorY2;
-        
-        /* 圆1大于圆2 */
-        if (r1 > r2) {
-            anchorX1 = (x2 + x3) / 2;
-            anchorY1 = (y2 + y3) / 2;
-            anchorX2 = (x1 + x4) / 2;
-            anchorY2 = (y1 + y4) / 2;
-        }
-        /* 圆1小于或等于圆2 */
-        else {
-            anchorX1 = (x1 + x4) / 2;
-            anchorY1 = (y1 + y4) / 2;
-            anchorX2 = (x2 + x3) / 2;
-            anchorY2 = (y2 + y3) / 2;
+    @Override
+    void evaluateAdhesion() {
+        for (int i = 0; i < mDynamicCircleCount; i++) {
+            Circle dynamicCircle = mDynamicCircles.get(i);
+            float distanceSquared = AdhesionResult.distanceSquared(dynamicCircle.x, dynamicCircle.y, mStaticCircle.x, mStaticCircle.y);
+            mAdhesion.set(i, distanceSquared < mMaxAdherentLengthSquared, mCurrentStaticCircleRadius);
         }
-        
-        /* 画粘连体 */
-        Path path = new Path();
-        path.reset();
-        path.moveTo(x1, y1);
-        path.quadTo(anchorX1, anchorY1, x2, y2);
-        path.lineTo(x4, y4);
-        path.quadTo(anchorX2, anchorY2, x3, y3);
-        path.lineTo(x1, y1);
-
-        return path;
     }
-    
 
     /**
-     * 判断粘连范围
+     * 动态圆从左到右往返，单程 1600 毫秒；静态圆半径往返变化，单程 800 毫秒
      *
-     * @return
+     * @param playTime
      */
-    private boolean doAdhere() {
-        
-        /* 距离变化 */
-        float distance = (float) Math.sqrt(Math.pow(mDynamicCircle.x - mStaticCircle.x, 2) + Math.pow(mDynamicCircle.y - mStaticCircle.y, 2));
-       
-        /* 判断是否可以作贝塞尔曲线 */
-        if (distance < mMaxAdherentLength) 
-            return true;
-        else
-            return false;
+    @Override
+    protected boolean onFrame(long playTime) {
+        boolean changed = false;
+
+        /* 动态圆的运动 */
+        float spacing = mStaticCircle.radius * 2 + mDivideWidth;
+        float offset = mDynamicOffsetChannel.valueAt(playTime);
+        for (int i = 0; i < mDynamicCircleCount; i++) {
+            Circle dynamicCircle = mDynamicCircles.get(i);
+            float x = mStaticCircle.x - spacing * (i + 1) + offset;
+            changed |= x != dynamicCircle.x;
+            dynamicCircle.x = x;
+        }
+
+        /* 静态圆的半径 */
+        float radius = mStaticRadiusChannel.valueAt(playTime);
+        changed |= radius != mCurrentStaticCircleRadius;
+        mCurrentStaticCircleRadius = radius;
+        return changed;
     }
 
     /**
-     * 开始动画
+     * 姿态：静态圆，然后是所有动态圆
+     *
+     * @param playTime
+     * @param out
      */
-    private void startAnim() {
-        
-        /* 动态圆的运动动画 */
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        float spacing = mStaticCircle.radius * 2 + mDivideWidth;
+        float offset = mDynamicOffsetChannel.valueAt(playTime);
+        out.reset(1 + mDynamicCircleCount);
+        out.set(0, mStaticCircle.x, mStaticCircle.y, mStaticRadiusChannel.valueAt(playTime));
         for (int i = 0; i < mDynamicCircleCount; i++) {
-            final Circle dynamicCircle = mDynamicCircles.get(i);
-            ValueAnimator xValueAnimator = ValueAnimator.ofFloat(dynamicCircle.x, dynamicCircle.x + (1 + mDynamicCircleCount) * (mDivideWidth + 2 * mStaticCircle.radius));
-            xValueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-            xValueAnimator.setDuration(1600);
-            xValueAnimator.setRepeatCount(Animation.INFINITE);
-            xValueAnimator.setRepeatMode(Animation.REVERSE);
-            xValueAnimator.start();
-            xValueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    dynamicCircle.x = (float) animation.getAnimatedValue();
-                    invalidate();
-                }
-            });
-        }
-
-        /* 静态圆的半径动画 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(mStaticCircle.radius, 1 * mStaticCircle.radius * (1 + mMaxStaticCircleRadiusScaleRate));
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(800);
-        valueAnimator.setRepeatCount(Animation.INFINITE);
-        valueAnimator.setRepeatMode(Animation.REVERSE);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                 mCurrentStaticCircleRadius = (float) animation.getAnimatedValue();
-                invalidate();
+            Circle dynamicCircle = mDynamicCircles.get(i);
+            float x = mStaticCircle.x - spacing * (i + 1) + offset;
+            if (AdhesionResult.distanceSquared(x, dynamicCircle.y, mStaticCircle.x, mStaticCircle.y) < mMaxAdherentLengthSquared) {
+                out.setAdhering(0);
+                out.setAdhering(i + 1);
             }
-        });
-        
+            out.set(i + 1, x, dynamicCircle.y, dynamicCircle.radius);
+        }
     }
 
     /**
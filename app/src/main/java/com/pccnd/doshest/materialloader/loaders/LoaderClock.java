@@ -0,0 +1,84 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+/**
+ * 加载器的时间来源.
+ *
+ * 调度器通过 {@link #requestFrame(long)} 请求下一帧，时间来源在合适的时候调用
+ * {@link #dispatchFrame(long)} 送回帧时间. 正式运行时使用垂直同步的时间，
+ * 测试和性能测量时可以用 {@link ManualClock} 手动逐帧推进.
+ *
+ * 每个时间来源有自己的调度器，使用同一个时间来源的加载器在同一个回调里推进.
+ */
+public abstract class LoaderClock {
+
+    /**
+     * 默认的时间来源
+     */
+    private static LoaderClock sDefault;
+
+    /**
+     * 调度器
+     */
+    private LoaderScheduler mScheduler;
+
+    /**
+     * 默认的时间来源，跟随 Choreographer 的垂直同步
+     *
+     * @return 时间来源
+     */
+    public static LoaderClock getDefault() {
+        if (sDefault == null) {
+            sDefault = new ChoreographerClock();
+        }
+        return sDefault;
+    }
+
+    /**
+     * 使用这个时间来源的调度器
+     *
+     * @return 调度器
+     */
+    LoaderScheduler getScheduler() {
+        if (mScheduler == null) {
+            mScheduler = new LoaderScheduler(this);
+        }
+        return mScheduler;
+    }
+
+    /**
+     * 当前时间，和送回的帧时间使用同一个时间基准
+     *
+     * @return 纳秒
+     */
+    protected abstract long getTimeNanos();
+
+    /**
+     * 是否不附加到窗口也推进加载器. 默认的时间来源全局共享，只登记附加到窗口的加载器，避免持有离开窗口的 View
+     *
+     * @return 不需要附加到窗口时为 true
+     */
+    boolean drivesDetachedLoaders() {
+        return false;
+    }
+
+    /**
+     * 请求一帧，已有的请求被替换
+     *
+     * @param delayMillis 至少延迟的时间，单位毫秒，0 表示下一帧
+     */
+    protected abstract void requestFrame(long delayMillis);
+
+    /**
+     * 取消已请求的帧
+     */
+    protected abstract void cancelFrame();
+
+    /**
+     * 送回帧时间，推进所有使用这个时间来源的加载器
+     *
+     * @param frameTimeNanos 帧时间，单位纳秒
+     */
+    protected final void dispatchFrame(long frameTimeNanos) {
+        getScheduler().doFrame(frameTimeNanos);
+    }
+}
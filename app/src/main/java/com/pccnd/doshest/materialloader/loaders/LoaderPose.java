@@ -0,0 +1,125 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+/**
+ * 加载器在某一时刻的姿态：按绘制顺序排列的所有圆的圆心、半径，以及是否与其它圆粘连.
+ *
+ * 由 {@link MaterialLoader#getPose(long, LoaderPose)} 写入，同一个对象可以反复使用，
+ * 只有圆的个数超过已有容量时才重新分配.
+ */
+public final class LoaderPose {
+
+    /**
+     * 圆心x
+     */
+    private float[] mX = new float[0];
+
+    /**
+     * 圆心y
+     */
+    private float[] mY = new float[0];
+
+    /**
+     * 半径
+     */
+    private float[] mRadius = new float[0];
+
+    /**
+     * 是否粘连
+     */
+    private boolean[] mAdhering = new boolean[0];
+
+    /**
+     * 圆的个数
+     */
+    private int mCount;
+
+    /**
+     * 圆的个数
+     *
+     * @return 个数
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * 第i个圆的圆心x
+     *
+     * @param i 序号
+     * @return 圆心x
+     */
+    public float getX(int i) {
+        return mX[i];
+    }
+
+    /**
+     * 第i个圆的圆心y
+     *
+     * @param i 序号
+     * @return 圆心y
+     */
+    public float getY(int i) {
+        return mY[i];
+    }
+
+    /**
+     * 第i个圆的半径
+     *
+     * @param i 序号
+     * @return 半径
+     */
+    public float getRadius(int i) {
+        return mRadius[i];
+    }
+
+    /**
+     * 第i个圆是否与其它圆粘连
+     *
+     * @param i 序号
+     * @return 是否粘连
+     */
+    public boolean isAdhering(int i) {
+        return mAdhering[i];
+    }
+
+    /**
+     * 设置圆的个数，清除粘连标记
+     *
+     * @param count 个数
+     */
+    void reset(int count) {
+        if (mX.length < count) {
+            mX = new float[count];
+            mY = new float[count];
+            mRadius = new float[count];
+            mAdhering = new boolean[count];
+        }
+        mCount = count;
+        for (int i = 0; i < count; i++) {
+            mAdhering[i] = false;
+        }
+    }
+
+    /**
+     * 设置第i个圆
+     *
+     * @param i      序号
+     * @param x      圆心x
+     * @param y      圆心y
+     * @param radius 半径
+     */
+    void set(int i, float x, float y, float radius) {
+        mX[i] = x;
+        mY[i] = y;
+        mRadius[i] = radius;
+    }
+
+    /**
+     * 标记第i个圆与其它圆粘连
+     *
+     * @param i 序号
+     */
+    void setAdhering(int i) {
+        mAdhering[i] = true;
+    }
+}
@@ -0,0 +1,275 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import java.util.ArrayList;
+
+/**
+ * 共享的帧调度器.
+ *
+ * 使用同一个 {@link LoaderClock} 的所有正在运行的加载器都登记在这里，只向时间来源请求一帧，
+ * 每帧用同一个帧时间依次推进它们. 所有加载器都处在静止段时延迟到最早的结束时间前一帧再请求，
+ * 剩下的等待和帧率限制都按垂直同步计数，没有加载器运行时取消请求.
+ * 加载器延迟显示或隐藏的到期时间也登记在这里，和静止段一样通过延迟请求唤醒.
+ * 默认的调度器跟随垂直同步，只能在主线程使用.
+ */
+public final class LoaderScheduler {
+
+    /**
+     * 纳秒换算为毫秒
+     */
+    private static final long NANOS_PER_MILLISECOND = 1000000;
+
+    /**
+     * 时间来源
+     */
+    private final LoaderClock mClock;
+
+    /**
+     * 正在运行的加载器
+     */
+    private final ArrayList<MaterialLoader> mLoaders = new ArrayList<MaterialLoader>();
+
+    /**
+     * 等待延迟显示或隐藏的加载器
+     */
+    private final ArrayList<MaterialLoader> mPendingLoaders = new ArrayList<MaterialLoader>();
+
+    /**
+     * 质量调整
+     */
+    private final QualityController mQualityController = new QualityController();
+
+    /**
+     * 刷新间隔估计
+     */
+    private final RefreshIntervalEstimator mRefreshInterval = new RefreshIntervalEstimator();
+
+    /**
+     * 是否已请求下一帧
+     */
+    private boolean mPosted;
+
+    /**
+     * 已请求的帧最早送出的时间，单位纳秒
+     */
+    private long mPostedTime;
+
+    /**
+     * 是否正在送出一帧
+     */
+    private boolean mDispatching;
+
+    /**
+     * 上一帧的帧时间，上一帧没有紧接着请求下一帧时为-1
+     */
+    private long mLastFrameTime = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param clock 时间来源
+     */
+    LoaderScheduler(LoaderClock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * 获取跟随垂直同步的默认调度器
+     *
+     * @return 调度器
+     */
+    public static LoaderScheduler getInstance() {
+        return LoaderClock.getDefault().getScheduler();
+    }
+
+    /**
+     * 正在运行的加载器数量
+     *
+     * @return 数量
+     */
+    public int getActiveCount() {
+        return mLoaders.size();
+    }
+
+    /**
+     * 根据掉帧情况调整这个调度器上所有加载器的绘制质量
+     *
+     * @return 质量调整
+     */
+    public QualityController getQualityController() {
+        return mQualityController;
+    }
+
+    /**
+     * 估计的屏幕刷新间隔
+     *
+     * @return 纳秒
+     */
+    long getRefreshIntervalNanos() {
+        return mRefreshInterval.getIntervalNanos();
+    }
+
+    /**
+     * 登记加载器，下一帧开始推进
+     *
+     * @param loader 加载器
+     */
+    void add(MaterialLoader loader) {
+        if (!mLoaders.contains(loader)) {
+            mLoaders.add(loader);
+
+            /* 可能正延迟等待静止段结束，改为下一帧. 不知道当前帧时间，这一帧不统计掉帧 */
+            mClock.requestFrame(0);
+            mQualityController.onFramesCancelled();
+            mLastFrameTime = -1;
+            mPosted = true;
+            mPostedTime = mClock.getTimeNanos();
+        }
+    }
+
+    /**
+     * 移除加载器
+     *
+     * @param loader 加载器
+     */
+    void remove(MaterialLoader loader) {
+        mLoaders.remove(loader);
+        updateRequest();
+    }
+
+    /**
+     * 登记加载器延迟显示或隐藏的到期时间 {@link MaterialLoader#getVisibilityTime()}，
+     * 到期时调用 {@link MaterialLoader#onVisibilityDue(long)}
+     *
+     * @param loader 加载器
+     */
+    void schedule(MaterialLoader loader) {
+        if (!mPendingLoaders.contains(loader)) {
+            mPendingLoaders.add(loader);
+        }
+
+        /* 帧回调中登记的在这一帧结束时一起请求；已请求的帧不晚于到期时间时不用替换 */
+        long wakeTime = loader.getVisibilityTime();
+        if (!mDispatching && (!mPosted || mPostedTime > wakeTime)) {
+            requestWake(wakeTime);
+        }
+    }
+
+    /**
+     * 加载器是否在等待延迟显示或隐藏
+     *
+     * @param loader 加载器
+     * @return 已登记时为 true
+     */
+    boolean isScheduled(MaterialLoader loader) {
+        return mPendingLoaders.contains(loader);
+    }
+
+    /**
+     * 取消加载器的延迟显示或隐藏
+     *
+     * @param loader 加载器
+     */
+    void unschedule(MaterialLoader loader) {
+        mPendingLoaders.remove(loader);
+        updateRequest();
+    }
+
+    /**
+     * 没有运行的加载器时，取消请求或改为在最早的显示或隐藏到期时唤醒
+     */
+    private void updateRequest() {
+        if (!mLoaders.isEmpty() || !mPosted) {
+            return;
+        }
+        if (mPendingLoaders.isEmpty()) {
+            mPosted = false;
+            mClock.cancelFrame();
+            mQualityController.onFramesCancelled();
+            mLastFrameTime = -1;
+        } else if (!mDispatching) {
+            long wakeTime = Long.MAX_VALUE;
+            for (int i = 0; i < mPendingLoaders.size(); i++) {
+                wakeTime = Math.min(wakeTime, mPendingLoaders.get(i).getVisibilityTime());
+            }
+            requestWake(wakeTime);
+        }
+    }
+
+    /**
+     * 在帧回调之外请求唤醒，替换已有的请求，这一帧不统计掉帧
+     *
+     * @param wakeTime 需要送出帧的时间，单位纳秒
+     */
+    private void requestWake(long wakeTime) {
+        long now = mClock.getTimeNanos();
+        long delay = getDelayMillis(now, wakeTime);
+        mClock.requestFrame(delay);
+        mQualityController.onFramesCancelled();
+        mLastFrameTime = -1;
+        mPosted = true;
+        mPostedTime = now + delay * NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * 由时间来源每帧调用一次
+     *
+     * @param frameTimeNanos 帧时间，单位纳秒
+     */
+    void doFrame(long frameTimeNanos) {
+        mPosted = false;
+        if (mLastFrameTime >= 0) {
+            mRefreshInterval.addSample(frameTimeNanos - mLastFrameTime);
+        }
+        mLastFrameTime = -1;
+        mQualityController.onFrame(frameTimeNanos);
+        mDispatching = true;
+
+        /* 到期的延迟显示和隐藏，离到期不到半个刷新间隔的一帧算作到期. 倒序遍历，回调中增删也不会跳过 */
+        long halfInterval = mRefreshInterval.getIntervalNanos() / 2;
+        for (int i = mPendingLoaders.size() - 1; i >= 0; i--) {
+            if (i < mPendingLoaders.size()) {
+                MaterialLoader loader = mPendingLoaders.get(i);
+                if (frameTimeNanos >= loader.getVisibilityTime() - halfInterval) {
+                    mPendingLoaders.remove(i);
+                    loader.onVisibilityDue(frameTimeNanos);
+                }
+            }
+        }
+
+        /* 倒序遍历，加载器在回调中被移除也不会跳过其它加载器 */
+        long wakeTime = Long.MAX_VALUE;
+        for (int i = mLoaders.size() - 1; i >= 0; i--) {
+            if (i < mLoaders.size()) {
+                wakeTime = Math.min(wakeTime, mLoaders.get(i).doFrame(frameTimeNanos));
+            }
+        }
+        for (int i = 0; i < mPendingLoaders.size(); i++) {
+            wakeTime = Math.min(wakeTime, mPendingLoaders.get(i).getVisibilityTime());
+        }
+        mDispatching = false;
+
+        if ((!mLoaders.isEmpty() || !mPendingLoaders.isEmpty()) && !mPosted) {
+            mPosted = true;
+            long delay = getDelayMillis(frameTimeNanos, wakeTime);
+            mClock.requestFrame(delay);
+            mQualityController.onFrameRequested(frameTimeNanos, delay, mRefreshInterval.getIntervalNanos());
+            mPostedTime = frameTimeNanos + delay * NANOS_PER_MILLISECOND;
+            if (delay == 0) {
+                mLastFrameTime = frameTimeNanos;
+            }
+        }
+    }
+
+    /**
+     * 请求的延迟. 两帧以内直接请求下一帧；更远时提前一帧到期，延迟从发出请求时算起也不会晚于唤醒时间
+     *
+     * @param timeNanos 当前帧时间或当前时间，单位纳秒
+     * @param wakeTime  需要送出帧的时间，单位纳秒
+     * @return 延迟，单位毫秒
+     */
+    private long getDelayMillis(long timeNanos, long wakeTime) {
+        long refreshInterval = mRefreshInterval.getIntervalNanos();
+        long wait = wakeTime - timeNanos;
+        return wait < 2 * refreshInterval ? 0 : (wait - refreshInterval) / NANOS_PER_MILLISECOND;
+    }
+}
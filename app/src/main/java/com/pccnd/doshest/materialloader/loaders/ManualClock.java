@@ -0,0 +1,158 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+/**
+ * 手动推进的时间来源，用于测试和性能测量.
+ *
+ * 时间只在调用 {@link #step(long)} 或 {@link #stepFrames(int)} 时前进，帧序列完全可以重现.
+ * 通过 {@link #add(MaterialLoader)} 登记的加载器不需要附加到窗口也会被推进，
+ * {@link MaterialLoader#show()} 和 {@link MaterialLoader#hide()} 的延迟也按这里的时间到期.
+ *
+ * 与 Choreographer 一样，帧只在垂直同步时送出，帧时间是最近一次垂直同步的时间；
+ * 延迟请求从发出请求的时刻算起，到期后的下一次垂直同步才送出.
+ * {@link #setPostLatency(long)} 模拟一帧内发出请求前已经花掉的时间.
+ */
+public final class ManualClock extends LoaderClock {
+
+    /**
+     * 60fps 的帧间隔，单位纳秒
+     */
+    public static final long FRAME_INTERVAL_NANOS = 16666667;
+
+    /**
+     * 纳秒换算为毫秒
+     */
+    private static final long NANOS_PER_MILLISECOND = 1000000;
+
+    /**
+     * 当前时间，单位纳秒
+     */
+    private long mTimeNanos;
+
+    /**
+     * 垂直同步间隔，单位纳秒
+     */
+    private long mFrameIntervalNanos = FRAME_INTERVAL_NANOS;
+
+    /**
+     * 帧回调开始到发出下一帧请求之间的时间，单位纳秒
+     */
+    private long mPostLatencyNanos;
+
+    /**
+     * 是否正在送出一帧
+     */
+    private boolean mDispatching;
+
+    /**
+     * 是否有请求的帧
+     */
+    private boolean mRequested;
+
+    /**
+     * 请求到期的时间，单位纳秒，之后的第一次垂直同步送出
+     */
+    private long mDueTimeNanos;
+
+    /**
+     * 让加载器使用这个时间来源，并且不论是否附加到窗口都开始推进
+     *
+     * @param loader 加载器
+     */
+    public void add(MaterialLoader loader) {
+        loader.setClock(this);
+        loader.start();
+    }
+
+    /**
+     * 停止推进加载器
+     *
+     * @param loader 加载器
+     */
+    public void remove(MaterialLoader loader) {
+        loader.stop();
+    }
+
+    /**
+     * 当前时间
+     *
+     * @return 纳秒
+     */
+    @Override
+    public long getTimeNanos() {
+        return mTimeNanos;
+    }
+
+    /**
+     * 设置垂直同步间隔，默认 60fps
+     *
+     * @param frameIntervalNanos 间隔，单位纳秒
+     */
+    public void setFrameInterval(long frameIntervalNanos) {
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * 设置每帧发出下一帧请求前花掉的时间，默认为 0
+     *
+     * @param postLatencyNanos 时间，单位纳秒
+     */
+    public void setPostLatency(long postLatencyNanos) {
+        mPostLatencyNanos = postLatencyNanos;
+    }
+
+    /**
+     * 时间前进一段，期间有请求到期时在最近一次垂直同步送出一帧.
+     * 一次前进跨过多次垂直同步相当于主线程被阻塞，只送出一帧.
+     *
+     * @param deltaNanos 前进的时间，单位纳秒
+     * @return 是否送出了一帧
+     */
+    public boolean step(long deltaNanos) {
+        mTimeNanos += deltaNanos;
+        long frameTimeNanos = mTimeNanos - mTimeNanos % mFrameIntervalNanos;
+        if (!mRequested || frameTimeNanos <= mDueTimeNanos) {
+            return false;
+        }
+        mRequested = false;
+        mDispatching = true;
+        try {
+            dispatchFrame(frameTimeNanos);
+        } finally {
+            mDispatching = false;
+        }
+        return true;
+    }
+
+    /**
+     * 按垂直同步间隔前进若干帧
+     *
+     * @param frames 帧数
+     * @return 实际送出的帧数，静止段内不送出
+     */
+    public int stepFrames(int frames) {
+        int dispatched = 0;
+        for (int i = 0; i < frames; i++) {
+            if (step(mFrameIntervalNanos)) {
+                dispatched++;
+            }
+        }
+        return dispatched;
+    }
+
+    @Override
+    boolean drivesDetachedLoaders() {
+        return true;
+    }
+
+    @Override
+    protected void requestFrame(long delayMillis) {
+        long postTimeNanos = mDispatching ? mTimeNanos + mPostLatencyNanos : mTimeNanos;
+        mRequested = true;
+        mDueTimeNanos = postTimeNanos + delayMillis * NANOS_PER_MILLISECOND;
+    }
+
+    @Override
+    protected void cancelFrame() {
+        mRequested = false;
+    }
+}
@@ -0,0 +1,646 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * 加载器基类.
+ *
+ * 运行中的加载器都登记到时间来源的 {@link LoaderScheduler}，由它在同一个帧回调里用同一个时间戳调用
+ * {@link #onFrame(long)}，由子类算出所有圆当前的状态，有可见变化时才刷新，每帧最多一次.
+ * 不再为每个圆创建 ValueAnimator，也不在每个周期结束时重新创建动画.
+ *
+ * 只有附加到窗口并且自身、所有父 View 和窗口都可见时才推进动画. 隐藏或离开窗口时暂停，
+ * 再次可见时从暂停时的进度继续播放.
+ *
+ * 默认跟随垂直同步，可以通过 {@link #setClock(LoaderClock)} 换成其它时间来源.
+ *
+ * 子类可以通过 {@link #getHoldEnd(long)} 声明时间轴上的静止段，静止期间不再请求帧.
+ *
+ * 可以用 {@link #setMaxFrameRate(int)} 或 {@link #setDefaultMaxFrameRate(int)} 限制帧率，
+ * 超出帧率的垂直同步直接跳过，每次计算仍按实际帧时间，运动速度不变.
+ *
+ * 跟随系统的动画时长缩放. 关闭动画时停在 {@link #getStaticFrameTime()} 的静态画面，不再请求帧；
+ * 省电模式下帧率不超过 {@link AnimationSettings#POWER_SAVE_FRAME_RATE}. 设置变化时自动切换.
+ *
+ * 掉帧时由调度器的 {@link QualityController} 逐级降低质量，子类在
+ * {@link #onQualityTierChanged(int)} 中关闭粘连体或抗锯齿.
+ *
+ * 在 ScrollView 等滚动容器里被滚出可见区域时同样不推进动画，滚回来时按经过的时间继续，
+ * 和一直在屏幕上播放的进度一致.
+ *
+ * 可以像 ContentLoadingProgressBar 一样用 {@link #show()} 和 {@link #hide()} 控制显示：
+ * 延迟一段时间才显示，显示后至少保持一段时间，很快结束的加载不会显示也不会闪烁.
+ * 时间取自时间来源，到期时间登记到调度器，由它的延迟请求唤醒.
+ */
+public abstract class MaterialLoader extends View {
+
+    /**
+     * 纳秒换算为毫秒
+     */
+    private static final long NANOS_PER_MILLISECOND = 1000000;
+
+    /**
+     * 纳秒换算为秒
+     */
+    private static final long NANOS_PER_SECOND = 1000000000;
+
+    /**
+     * 不限制帧率
+     */
+    public static final int FRAME_RATE_UNLIMITED = 0;
+
+    /**
+     * 默认的显示延迟，单位毫秒
+     */
+    private static final long DEFAULT_SHOW_DELAY = 500;
+
+    /**
+     * 默认的最短显示时间，单位毫秒
+     */
+    private static final long DEFAULT_MIN_SHOW_TIME = 500;
+
+    /**
+     * 全局默认的最大帧率
+     */
+    private static int sDefaultMaxFrameRate = FRAME_RATE_UNLIMITED;
+
+    /**
+     * 最大帧率，小于0表示使用全局默认值
+     */
+    private int mMaxFrameRate = -1;
+
+    /**
+     * 系统动画设置，附加到窗口时获取
+     */
+    private AnimationSettings mAnimationSettings;
+
+    /**
+     * 系统动画设置变化
+     */
+    private final AnimationSettings.OnChangedListener mAnimationSettingsListener = new AnimationSettings.OnChangedListener() {
+        @Override
+        public void onAnimationSettingsChanged() {
+            applyAnimationSettings();
+        }
+    };
+
+    /**
+     * 动画时长缩放
+     */
+    private float mDurationScale = 1;
+
+    /**
+     * 是否处于省电模式
+     */
+    private boolean mPowerSaveMode;
+
+    /**
+     * 是否正显示静态画面
+     */
+    private boolean mShowingStaticFrame;
+
+    /**
+     * 显示延迟，单位毫秒
+     */
+    private long mShowDelay = DEFAULT_SHOW_DELAY;
+
+    /**
+     * 最短显示时间，单位毫秒
+     */
+    private long mMinShowTime = DEFAULT_MIN_SHOW_TIME;
+
+    /**
+     * 开始显示的时间，单位纳秒，小于0表示没有通过 {@link #show()} 显示
+     */
+    private long mShowStartTime = -1;
+
+    /**
+     * 是否已请求显示
+     */
+    private boolean mShowRequested;
+
+    /**
+     * 延迟显示或隐藏的到期时间，单位纳秒
+     */
+    private long mVisibilityTime;
+
+    /**
+     * 当前的质量等级
+     */
+    private int mQualityTier = QualityController.TIER_FULL;
+
+    /**
+     * 限制帧率时下一次计算的帧时间，单位纳秒
+     */
+    private long mNextFrameTime;
+
+    /**
+     * 动画开始的帧时间，单位纳秒，小于0表示下一帧重新计算
+     */
+    private long mStartTime = -1;
+
+    /**
+     * 时间来源
+     */
+    private LoaderClock mClock = LoaderClock.getDefault();
+
+    /**
+     * 静止段结束的帧时间，单位纳秒，在此之前不需要计算
+     */
+    private long mWakeTime;
+
+    /**
+     * 暂停前已经播放的时间，单位毫秒
+     */
+    private long mPlayTime;
+
+    /**
+     * 是否已附加到窗口
+     */
+    private boolean mAttached;
+
+    /**
+     * 是否已登记到调度器
+     */
+    private boolean mRunning;
+
+    /**
+     * 是否完全在可见区域之外
+     */
+    private boolean mCulled;
+
+    /**
+     * 可见区域
+     */
+    private final Rect mVisibleRect = new Rect();
+
+    /**
+     * 滚动和布局变化时重新判断可见区域
+     */
+    private final ViewportListener mViewportListener = new ViewportListener();
+
+    /**
+     * 构造函数
+     *
+     * @param context
+     */
+    public MaterialLoader(Context context) {
+        super(context);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param context
+     * @param attrs
+     */
+    public MaterialLoader(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param context
+     * @param attrs
+     * @param defStyleAttr
+     */
+    public MaterialLoader(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(mViewportListener);
+        observer.addOnGlobalLayoutListener(mViewportListener);
+        mAnimationSettings = AnimationSettings.getInstance(getContext());
+        mAnimationSettings.addListener(mAnimationSettingsListener);
+
+        /* 未附加时请求的或离开窗口时取消了的延迟显示或隐藏在这里安排 */
+        if (mShowRequested && mShowStartTime < 0) {
+            scheduleVisibility(mClock.getTimeNanos() + mShowDelay * NANOS_PER_MILLISECOND);
+        } else if (!mShowRequested && mShowStartTime >= 0) {
+            hideNow();
+        }
+        applyAnimationSettings();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mAttached = false;
+        ViewTreeObserver observer = getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnScrollChangedListener(mViewportListener);
+            observer.removeOnGlobalLayoutListener(mViewportListener);
+        }
+        mAnimationSettings.removeListener(mAnimationSettingsListener);
+        mClock.getScheduler().unschedule(this);
+        updateRunning();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateRunning();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateRunning();
+    }
+
+    /**
+     * 请求显示. 先隐藏，显示延迟内调用了 {@link #hide()} 就不再显示；
+     * 在此期间不测量、不绘制，也不推进动画
+     */
+    public void show() {
+        if (mShowRequested) {
+            return;
+        }
+        mShowRequested = true;
+        mClock.getScheduler().unschedule(this);
+        if (mShowStartTime < 0) {
+            setVisibility(GONE);
+            scheduleVisibility(mClock.getTimeNanos() + mShowDelay * NANOS_PER_MILLISECOND);
+        }
+    }
+
+    /**
+     * 请求隐藏. 还没显示时直接取消，已经显示时至少保持最短显示时间再隐藏
+     */
+    public void hide() {
+        mShowRequested = false;
+        mClock.getScheduler().unschedule(this);
+        if (mShowStartTime < 0) {
+            setVisibility(GONE);
+            return;
+        }
+        long hideTime = mShowStartTime + mMinShowTime * NANOS_PER_MILLISECOND;
+        if (mClock.getTimeNanos() >= hideTime) {
+            hideNow();
+        } else {
+            scheduleVisibility(hideTime);
+        }
+    }
+
+    /**
+     * 登记延迟显示或隐藏的到期时间. 未附加到窗口时在 {@link #onAttachedToWindow()} 中安排，
+     * {@link ManualClock} 不需要附加
+     *
+     * @param time 到期时间，单位纳秒
+     */
+    private void scheduleVisibility(long time) {
+        mVisibilityTime = time;
+        if (mAttached || mClock.drivesDetachedLoaders()) {
+            mClock.getScheduler().schedule(this);
+        }
+    }
+
+    /**
+     * 延迟显示或隐藏的到期时间
+     *
+     * @return 纳秒
+     */
+    long getVisibilityTime() {
+        return mVisibilityTime;
+    }
+
+    /**
+     * 延迟显示或隐藏到期，由调度器调用
+     *
+     * @param frameTimeNanos 帧时间，单位纳秒
+     */
+    void onVisibilityDue(long frameTimeNanos) {
+        if (mShowRequested) {
+            mShowStartTime = frameTimeNanos;
+            setVisibility(VISIBLE);
+        } else {
+            hideNow();
+        }
+    }
+
+    /**
+     * 立即隐藏
+     */
+    private void hideNow() {
+        mShowStartTime = -1;
+        setVisibility(GONE);
+    }
+
+    /**
+     * 设置调用 {@link #show()} 后延迟多久才显示
+     *
+     * @param showDelay 毫秒
+     */
+    public void setShowDelay(long showDelay) {
+        mShowDelay = showDelay;
+    }
+
+    /**
+     * 设置显示后至少保持多久
+     *
+     * @param minShowTime 毫秒
+     */
+    public void setMinShowTime(long minShowTime) {
+        mMinShowTime = minShowTime;
+    }
+
+    /**
+     * 按附加状态和可见性开始或暂停动画
+     */
+    private void updateRunning() {
+        if (mAttached && getWindowVisibility() == VISIBLE && isShown()) {
+            if (mDurationScale == 0) {
+                stop();
+                showStaticFrame();
+            } else if (mCulled) {
+                suspend();
+            } else {
+                start();
+            }
+        } else {
+            stop();
+        }
+    }
+
+    /**
+     * 读取系统动画设置. 缩放变化时按已播放的时间重新计算开始时间，进度不跳变
+     */
+    private void applyAnimationSettings() {
+        float durationScale = Math.max(0, mAnimationSettings.getDurationScale());
+        mPowerSaveMode = mAnimationSettings.isPowerSaveMode();
+        if (durationScale != mDurationScale) {
+            stop();
+            mDurationScale = durationScale;
+        }
+        updateRunning();
+    }
+
+    /**
+     * 关闭动画时显示静态画面，进度保持不变，恢复动画时从原来的进度继续
+     */
+    private void showStaticFrame() {
+        if (!mShowingStaticFrame) {
+            mShowingStaticFrame = true;
+            onFrame(getStaticFrameTime());
+            invalidate();
+        }
+    }
+
+    /**
+     * 判断是否被滚出了所有父 View 的可见区域
+     */
+    private void updateCulling() {
+        boolean culled = !getGlobalVisibleRect(mVisibleRect);
+        if (culled != mCulled) {
+            mCulled = culled;
+            updateRunning();
+        }
+    }
+
+    /**
+     * 按播放时间计算所有圆的状态，每帧调用一次
+     *
+     * @param playTime 动画开始后经过的时间，单位毫秒
+     * @return 是否有可见的变化，没有变化时本帧不刷新
+     */
+    protected abstract boolean onFrame(long playTime);
+
+    /**
+     * 计算某一播放时间的姿态，写入 out. 不修改加载器的状态，可以在任意时刻采样
+     *
+     * @param playTime 播放时间，单位毫秒
+     * @param out      写入的姿态
+     */
+    public abstract void getPose(long playTime, LoaderPose out);
+
+    /**
+     * 质量等级变化，子类按等级关闭粘连体或抗锯齿，帧率由基类处理
+     *
+     * @param tier {@link QualityController} 中的等级
+     */
+    protected void onQualityTierChanged(int tier) {
+    }
+
+    /**
+     * 关闭动画时显示的画面对应的播放时间
+     *
+     * @return 播放时间，单位毫秒
+     */
+    protected long getStaticFrameTime() {
+        return 0;
+    }
+
+    /**
+     * 静止段结束的播放时间. 静止期间画面不变，调度器直到结束时间才再次调用 {@link #onFrame(long)}
+     *
+     * @param playTime 当前播放时间，单位毫秒
+     * @return 静止段结束的播放时间，不在静止段时返回 playTime
+     */
+    protected long getHoldEnd(long playTime) {
+        return playTime;
+    }
+
+    /**
+     * 登记到调度器
+     */
+    void start() {
+        mShowingStaticFrame = false;
+        if (!mRunning) {
+            mRunning = true;
+            mClock.getScheduler().add(this);
+        }
+    }
+
+    /**
+     * 从调度器移除，保留当前进度
+     */
+    void stop() {
+        mStartTime = -1;
+        if (mRunning) {
+            mRunning = false;
+            mClock.getScheduler().remove(this);
+        }
+    }
+
+    /**
+     * 从调度器移除，保留开始时间，恢复时按经过的时间继续
+     */
+    private void suspend() {
+        if (mRunning) {
+            mRunning = false;
+            mClock.getScheduler().remove(this);
+        }
+    }
+
+    /**
+     * 设置所有加载器默认的最大帧率
+     *
+     * @param frameRate 每秒帧数，{@link #FRAME_RATE_UNLIMITED} 表示跟随屏幕刷新率
+     */
+    public static void setDefaultMaxFrameRate(int frameRate) {
+        sDefaultMaxFrameRate = Math.max(FRAME_RATE_UNLIMITED, frameRate);
+    }
+
+    /**
+     * 设置这个加载器的最大帧率
+     *
+     * @param frameRate 每秒帧数，{@link #FRAME_RATE_UNLIMITED} 表示跟随屏幕刷新率，小于0表示使用全局默认值
+     */
+    public void setMaxFrameRate(int frameRate) {
+        mMaxFrameRate = frameRate;
+    }
+
+    /**
+     * 限制帧率时两次计算的最小间隔
+     *
+     * @return 纳秒，不限制时为0
+     */
+    private long getFrameIntervalNanos() {
+        int frameRate = mMaxFrameRate < 0 ? sDefaultMaxFrameRate : mMaxFrameRate;
+
+        /* 降级或省电时帧率不超过降低后的帧率 */
+        if (mQualityTier >= QualityController.TIER_REDUCED_FRAME_RATE) {
+            frameRate = limitFrameRate(frameRate, QualityController.REDUCED_FRAME_RATE);
+        }
+        if (mPowerSaveMode) {
+            frameRate = limitFrameRate(frameRate, AnimationSettings.POWER_SAVE_FRAME_RATE);
+        }
+        return frameRate > 0 ? NANOS_PER_SECOND / frameRate : 0;
+    }
+
+    /**
+     * 帧率不超过上限
+     *
+     * @param frameRate 帧率，不大于0表示不限制
+     * @param limit     上限
+     * @return 帧率
+     */
+    private static int limitFrameRate(int frameRate, int limit) {
+        return frameRate <= 0 || frameRate > limit ? limit : frameRate;
+    }
+
+    /**
+     * 设置时间来源，运行中时从原来的调度器移到新的调度器，进度不变
+     *
+     * @param clock 时间来源
+     */
+    public void setClock(LoaderClock clock) {
+        if (clock == mClock) {
+            return;
+        }
+        boolean running = mRunning;
+        stop();
+
+        /* 延迟显示或隐藏移到新的时间来源，按剩余时间换算 */
+        LoaderScheduler scheduler = mClock.getScheduler();
+        boolean pending = scheduler.isScheduled(this);
+        scheduler.unschedule(this);
+        long offset = clock.getTimeNanos() - mClock.getTimeNanos();
+        if (pending) {
+            mVisibilityTime += offset;
+        }
+        if (mShowStartTime >= 0) {
+            mShowStartTime = Math.max(0, mShowStartTime + offset);
+        }
+        mClock = clock;
+        if (running) {
+            start();
+        }
+        if (pending) {
+            scheduleVisibility(mVisibilityTime);
+        }
+    }
+
+    /**
+     * 布局变化后按当前进度重新计算一次，暂停或显示静态画面时也能立即更新
+     */
+    void refreshFrame() {
+        onFrame(mShowingStaticFrame ? getStaticFrameTime() : mPlayTime);
+        invalidate();
+    }
+
+    /**
+     * 由调度器每帧调用一次
+     *
+     * @param frameTimeNanos 帧时间，单位纳秒
+     * @return 下次需要计算的帧时间，单位纳秒
+     */
+    long doFrame(long frameTimeNanos) {
+
+        /* 质量等级变化 */
+        int tier = mClock.getScheduler().getQualityController().getTier();
+        if (tier != mQualityTier) {
+            mQualityTier = tier;
+            onQualityTierChanged(tier);
+            invalidate();
+        }
+
+        /* 静止段内或未到限制帧率的下一帧时跳过，按垂直同步计数，离到期不到半个刷新间隔的一帧算作到期 */
+        if (mStartTime >= 0) {
+            long wakeTime = Math.max(mWakeTime, mNextFrameTime);
+            if (frameTimeNanos < wakeTime - mClock.getScheduler().getRefreshIntervalNanos() / 2) {
+                return wakeTime;
+            }
+        }
+
+        /* 开始或恢复时，把开始时间往前推已经播放的时间 */
+        if (mStartTime < 0) {
+            mStartTime = frameTimeNanos - toNanos(mPlayTime);
+            mNextFrameTime = frameTimeNanos;
+        }
+
+        /* 按固定节奏安排下一帧，落后超过一个间隔时从当前帧重新计 */
+        long frameInterval = getFrameIntervalNanos();
+        if (frameInterval > 0) {
+            if (frameTimeNanos - mNextFrameTime > frameInterval) {
+                mNextFrameTime = frameTimeNanos;
+            }
+            mNextFrameTime += frameInterval;
+        } else {
+            mNextFrameTime = 0;
+        }
+        mPlayTime = (long) ((frameTimeNanos - mStartTime) / ((double) mDurationScale * NANOS_PER_MILLISECOND));
+        if (onFrame(mPlayTime)) {
+            invalidate();
+        }
+        mWakeTime = mStartTime + toNanos(getHoldEnd(mPlayTime));
+        return Math.max(mWakeTime, mNextFrameTime);
+    }
+
+    /**
+     * 播放时间按动画时长缩放换算为帧时间的长度
+     *
+     * @param playTime 播放时间，单位毫秒
+     * @return 纳秒
+     */
+    private long toNanos(long playTime) {
+        return (long) (playTime * (double) mDurationScale * NANOS_PER_MILLISECOND);
+    }
+
+    /**
+     * 可见区域监听
+     */
+    private class ViewportListener implements ViewTreeObserver.OnScrollChangedListener,
+            ViewTreeObserver.OnGlobalLayoutListener {
+
+        @Override
+        public void onScrollChanged() {
+            updateCulling();
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            updateCulling();
+        }
+    }
+}
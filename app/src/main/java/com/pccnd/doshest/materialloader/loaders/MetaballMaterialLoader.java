@@ -0,0 +1,126 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+
+/**
+ * 粘连加载器.
+ *
+ * 持有画笔、绘制方式和粘连判断结果，每帧先由子类判断粘连，再在 {@link #onDrawMetaballs} 中提交圆和粘连体；
+ * 掉帧降级时不画粘连体，最低一级关闭抗锯齿.
+ */
+public abstract class MetaballMaterialLoader extends MaterialLoader {
+
+    /**
+     * 画笔
+     */
+    final Paint mPaint = new Paint();
+
+    /**
+     * 粘连判断结果，子类初始化时按圆的对数创建
+     */
+    AdhesionResult mAdhesion;
+
+    /**
+     * 当前绘制方式
+     */
+    private MetaballRenderer mRenderer = MetaballRenderer.create(MetaballRenderer.MODE_PATH, this);
+
+    /**
+     * 是否画粘连体，掉帧降级时关闭
+     */
+    private boolean mAdhesionEnabled = true;
+
+    /**
+     * 构造函数
+     *
+     * @param context
+     */
+    public MetaballMaterialLoader(Context context) {
+        super(context);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param context
+     * @param attrs
+     */
+    public MetaballMaterialLoader(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param context
+     * @param attrs
+     * @param defStyleAttr
+     */
+    public MetaballMaterialLoader(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * 绘制
+     *
+     * @param canvas
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+
+        /* 粘连判断 */
+        evaluateAdhesion();
+
+        mRenderer.begin(canvas, mPaint);
+        onDrawMetaballs(mRenderer);
+        mRenderer.end();
+    }
+
+    /**
+     * 判断每一对圆是否粘连，结果写入 {@link #mAdhesion}
+     */
+    abstract void evaluateAdhesion();
+
+    /**
+     * 提交圆和粘连体
+     *
+     * @param renderer 绘制方式
+     */
+    abstract void onDrawMetaballs(MetaballRenderer renderer);
+
+    /**
+     * 这一帧是否画第几对圆的粘连体
+     *
+     * @param position 第几对
+     * @return 粘连且未被降级关闭时为 true
+     */
+    boolean isAdhering(int position) {
+        return mAdhesionEnabled && mAdhesion.adhering[position];
+    }
+
+    /**
+     * 设置绘制方式，默认 {@link MetaballRenderer#MODE_PATH}.
+     *
+     * 等值面绘制在后台线程计算轮廓，比圆的位置晚一帧.
+     *
+     * @param renderMode {@link MetaballRenderer#MODE_PATH} 或 {@link MetaballRenderer#MODE_FIELD}
+     */
+    public void setRenderMode(int renderMode) {
+        mRenderer = MetaballRenderer.create(renderMode, this);
+        invalidate();
+    }
+
+    /**
+     * 掉帧降级时不画粘连体，最低一级关闭抗锯齿
+     *
+     * @param tier
+     */
+    @Override
+    protected void onQualityTierChanged(int tier) {
+        mAdhesionEnabled = tier < QualityController.TIER_NO_ADHESION;
+        mPaint.setAntiAlias(tier < QualityController.TIER_ALIASED);
+    }
+}
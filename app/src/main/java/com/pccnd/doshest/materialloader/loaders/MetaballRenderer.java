@@ -0,0 +1,76 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * 粘连加载器的绘制方式.
+ *
+ * 每帧在 {@link #begin(Canvas, Paint)} 和 {@link #end()} 之间提交圆和粘连体，
+ * {@link #MODE_PATH} 逐个绘制圆和路径，{@link #MODE_FIELD} 把圆当作场源提取等值线，写入一个路径绘制.
+ */
+public abstract class MetaballRenderer {
+
+    /**
+     * 路径绘制，默认方式
+     */
+    public static final int MODE_PATH = 0;
+
+    /**
+     * 等值面绘制，圆靠近时由场强自然融合，不使用粘连体.
+     *
+     * 轮廓在后台计算，比圆的位置晚一帧
+     */
+    public static final int MODE_FIELD = 1;
+
+    MetaballRenderer() {
+    }
+
+    /**
+     * 创建绘制方式
+     *
+     * @param mode {@link #MODE_PATH} 或 {@link #MODE_FIELD}
+     * @param view 后台算完后请求重绘的 View
+     * @return 绘制方式
+     */
+    static MetaballRenderer create(int mode, View view) {
+        switch (mode) {
+            case MODE_PATH:
+                return new PathMetaballRenderer();
+            case MODE_FIELD:
+                return new FieldMetaballRenderer(view);
+            default:
+                throw new IllegalArgumentException("Unknown render mode: " + mode);
+        }
+    }
+
+    /**
+     * 开始一帧
+     *
+     * @param canvas 画布
+     * @param paint  画笔
+     */
+    abstract void begin(Canvas canvas, Paint paint);
+
+    /**
+     * 圆
+     *
+     * @param cx     圆心x
+     * @param cy     圆心y
+     * @param radius 半径
+     */
+    abstract void drawCircle(float cx, float cy, float radius);
+
+    /**
+     * 粘连体
+     *
+     * @param body 已计算好的粘连体
+     */
+    abstract void drawAdherentBody(AdherentBody body);
+
+    /**
+     * 结束一帧
+     */
+    abstract void end();
+}
@@ -15,26 +15,16 @@
  */
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
-import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.Animation;
-import android.view.animation.LinearInterpolator;
-
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * 两个球不断融合和分开
  * 
  * Created by doshest on 2015/11/7.
  */
-public class MixMaterialLoader extends View {
+public class MixMaterialLoader extends MetaballMaterialLoader {
 
     /**
      * 宽度
@@ -51,6 +41,16 @@ public class MixMaterialLoader extends View {
      */
     private Circle mBigCircle = new Circle();
 
+    /**
+     * 抽象大圆半径的变化
+     */
+    private FloatChannel mBigCircleRadiusChannel;
+
+    /**
+     * 两个球的角度
+     */
+    private FloatChannel mAngleChannel;
+
     /**
      * 当前的动态圆半径
      */
@@ -67,25 +67,30 @@ public class MixMaterialLoader extends View {
     private float mMaxStaticCircleRadiusScaleRate = 0.5f;
     
     /**
-     * 动态圆
-     */
-    private Circle mDynamicCircle;
-
-    /**
-     * 维护动态圆容器
+     * 动态圆，另一个动态圆是它关于抽象大圆圆心的中心对称
      */
-    private List<Circle> mDynamicCircles = new ArrayList<Circle>();
+    private Circle mDynamicCircle = new Circle();
     
     /**
      * 最大粘连长度
      */
     private float mMaxAdherentLength = 2 * mCurrentDynamicCircleRadius ;
-    
+
     /**
-     * 画笔
+     * 最大粘连长度的平方
      */
-    private Paint mPaint = new Paint();
-    
+    private float mMaxAdherentLengthSquared = mMaxAdherentLength * mMaxAdherentLength;
+
+    /**
+     * 贝塞尔曲线偏移角度
+     */
+    private static final FloatTrig.Rotation ADHERENT_OFFSET = FloatTrig.rotation(40);
+
+    /**
+     * 粘连体
+     */
+    private AdherentBody mAdherentBody = new AdherentBody();
+
     /**
      * 默认颜色
      */
@@ -129,6 +134,9 @@ public class MixMaterialLoader extends View {
      */
     private void init() {
         
+        /* 粘连判断结果 */
+        mAdhesion = new AdhesionResult(1);
+
         /* 画笔 */
         mPaint.setColor(mColor);
         mPaint.setStyle(Paint.Style.FILL);
@@ -141,18 +149,16 @@ public class MixMaterialLoader extends View {
         mBigCircle.x = mWidth / 2;
         mBigCircle.y = mHeight / 2;
         mBigCircle.radius = mCurrentBigCircleRadius;
+        mBigCircleRadiusChannel = FloatChannel.reverse(0, mBigCircle.radius, 1600, Easing.ACCELERATE_DECELERATE);
+        mAngleChannel = FloatChannel.repeat(180, 540, 3200, Easing.LINEAR);
         
         
         /* 动态圆 */
-        for (int i = 0; i < 2; i++) {
-            mDynamicCircle = new Circle();
-            mDynamicCircle.radius = mCurrentDynamicCircleRadius;
-            mDynamicCircle.x = mBigCircle.x;
-            mDynamicCircle.y = mBigCircle.y;
-            mDynamicCircles.add(mDynamicCircle);
-        }
+        mDynamicCircle.radius = mCurrentDynamicCircleRadius;
+        mDynamicCircle.x = mBigCircle.x;
+        mDynamicCircle.y = mBigCircle.y;
 
-        startAnim();
+        onFrame(0);
 
        
 
@@ -170,236 +176,94 @@ public class MixMaterialLoader extends View {
     }
 
     /**
-     * 绘制
-     * 
-     * @param canvas
+     * 提交圆和粘连体
+     *
+     * @param renderer
      */
     @Override
-    protected void onDraw(Canvas canvas) {
-        
-       
-        if (doAdhere()) {
-            canvas.drawCircle(mDynamicCircles.get(0).x, mDynamicCircles.get(0).y, mCurrentDynamicCircleRadius, mPaint);
-            canvas.drawCircle(mDynamicCircles.get(1).x, mDynamicCircles.get(1).y, mCurrentDynamicCircleRadius, mPaint);
-            Path path = drawAdherentBody(mDynamicCircles.get(0).x, mDynamicCircles.get(0).y, mCurrentDynamicCircleRadius, 40, mDynamicCircles.get(1).x, mDynamicCircles.get(1).y, mCurrentDynamicCircleRadius, 40);
-            
-            canvas.drawPath(path,mPaint);
-        } else {
-            canvas.drawCircle(mDynamicCircles.get(0).x, mDynamicCircles.get(0).y, mDynamicCircle.radius * (1 - mMaxStaticCircleRadiusScaleRate), mPaint);
-            canvas.drawCircle(mDynamicCircles.get(1).x, mDynamicCircles.get(1).y, mDynamicCircle.radius * (1 - mMaxStaticCircleRadiusScaleRate), mPaint);
+    void onDrawMetaballs(MetaballRenderer renderer) {
+
+        /* 两个动态圆，第二个由中心对称得到 */
+        renderer.drawCircle(mDynamicCircle.x, mDynamicCircle.y, mAdhesion.radius[0]);
+        renderer.drawCircle(2 * mBigCircle.x - mDynamicCircle.x, 2 * mBigCircle.y - mDynamicCircle.y, mAdhesion.radius[0]);
+        if (isAdhering(0)) {
+            mAdherentBody.setMirrored(mDynamicCircle.x, mDynamicCircle.y, mAdhesion.radius[0], ADHERENT_OFFSET, mBigCircle.x, mBigCircle.y);
+            renderer.drawAdherentBody(mAdherentBody);
         }
-        
     }
 
     /**
-     * 画粘连体
-     *
-     * @param cx1     圆心x1
-     * @param cy1     圆心y1
-     * @param r1      圆半径r1
-     * @param offset1 贝塞尔曲线偏移角度offset1
-     * @param cx2     圆心x2
-     * @param cy2     圆心y2
-     * @param r2      圆半径r2
-     * @param offset2 贝塞尔曲线偏移角度offset2
-     * @return
+     * 判断粘连范围，动态改变两个球的大小
      */
-    private Path drawAdherentBody(float cx1,float cy1,float r1,float offset1,float cx2,float cy2,float r2,float offset2) {
-        
-        /* 求三角函数 */
-        float degrees =(float) Math.toDegrees(Math.atan(Math.abs(cy2 - cy1) / Math.abs(cx2 - cx1)));
-        
-        /* 根据圆1与圆2的相对位置求四个点 */
-        float differenceX = cx1 - cx2;
-        float differenceY = cy1 - cy2;
-
-        /* 两条贝塞尔曲线的四个端点 */
-        float x1,y1,x2,y2,x3,y3,x4,y4;
-        
-        /* 圆1在圆2的下边 */
-        if (differenceX == 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
+    @Override
+    void evaluateAdhesion() {
 
-        }
-        /* 圆1在圆2的上边 */
-        else if (differenceX == 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
+        /* 两球距离是动态圆到圆心距离的两倍 */
+        float distanceSquared = 4 * AdhesionResult.distanceSquared(mDynamicCircle.x, mDynamicCircle.y, mBigCircle.x, mBigCircle.y);
 
-        }
-        /* 圆1在圆2的右边 */
-        else if (differenceX > 0 && differenceY == 0) {
-            x2 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        } 
-        /* 圆1在圆2的左边 */
-        else if (differenceX < 0 && differenceY == 0 ) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的右下角 */
-        else if (differenceX > 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        /* 圆1在圆2的左上角 */
-        else if (differenceX < 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的左下角 */
-        else if (differenceX < 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的右上角 */
-        else {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 + r1* (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        
-        /* 贝塞尔曲线的控制点 */
-        float anchorX1,anchorY1,anchorX2,anchorY2;
-        
-        /* 圆1大于圆2 */
-        if (r1 > r2) {
-            anchorX1 = (x2 + x3) / 2;
-            anchorY1 = (y2 + y3) / 2;
-            anchorX2 = (x1 + x4) / 2;
-            anchorY2 = (y1 + y4) / 2;
-        }
-        /* 圆1小于或等于圆2 */
-        else {
-            anchorX1 = (x1 + x4) / 2;
-            anchorY1 = (y1 + y4) / 2;
-            anchorX2 = (x2 + x3) / 2;
-            anchorY2 = (y2 + y3) / 2;
-        }
-        
-        /* 画粘连体 */
-        Path path = new Path();
-        path.reset();
-        path.moveTo(x1, y1);
-        path.quadTo(anchorX1, anchorY1, x2, y2);
-        path.lineTo(x4, y4);
-        path.quadTo(anchorX2, anchorY2, x3, y3);
-        path.lineTo(x1, y1);
-
-        return path;
+        /* 粘连时按距离缩小两个球，分开后保持最小半径 */
+        mAdhesion.set(0, distanceSquared < mMaxAdherentLengthSquared, getAdherentRadius(distanceSquared));
     }
-    
 
     /**
-     * 判断粘连范围
+     * 按两球距离缩小后的半径
      *
-     * @return
+     * @param distanceSquared 两球距离的平方
+     * @return 缩小后的半径
      */
-    private boolean doAdhere() {
-        
-        /* 半径变化 */
-        float distance = (float) Math.sqrt(Math.pow(mDynamicCircles.get(1).x - mDynamicCircles.get(0).x, 2) + Math.pow(mDynamicCircles.get(1).y - mDynamicCircles.get(0).y, 2));
-        float scale =  ( distance / mMaxAdherentLength ) * mMaxStaticCircleRadiusScaleRate;
-        mCurrentDynamicCircleRadius = mDynamicCircles.get(0).radius * (1 - scale);
-        
-        
-        /* 判断是否可以作贝塞尔曲线 */
-        if (distance < mMaxAdherentLength) 
-            return true;
-        else
-            return false;
+    private float getAdherentRadius(float distanceSquared) {
+        if (distanceSquared < mMaxAdherentLengthSquared) {
+            float distance = (float) Math.sqrt(distanceSquared);
+            float scale =  ( distance / mMaxAdherentLength ) * mMaxStaticCircleRadiusScaleRate;
+            return mDynamicCircle.radius * (1 - scale);
+        }
+        return mDynamicCircle.radius * (1 - mMaxStaticCircleRadiusScaleRate);
     }
 
     /**
-     * 开始动画
+     * 抽象大圆半径往返变化，单程 1600 毫秒；两个球匀速旋转，一圈 3200 毫秒
+     *
+     * @param playTime
      */
-    private void startAnim() {
-        
+    @Override
+    protected boolean onFrame(long playTime) {
+
         /* 抽象大圆的半径变化 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(0,mCurrentBigCircleRadius);
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(1600);
-        valueAnimator.setRepeatCount(Animation.INFINITE);
-        valueAnimator.setRepeatMode(Animation.REVERSE);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float currentBigCircleRadius = (float) animation.getAnimatedValue();
-                mCurrentBigCircleRadius = currentBigCircleRadius;
-                invalidate();
-            }
-        });
+        mCurrentBigCircleRadius = mBigCircleRadiusChannel.valueAt(playTime);
 
         /* 两个球的坐标变化 */
-        ValueAnimator valueAnimator2 = ValueAnimator.ofFloat(180,540);
-        valueAnimator2.setInterpolator(new LinearInterpolator());
-        valueAnimator2.setDuration(3200);
-        valueAnimator2.setRepeatCount(Animation.INFINITE);
-        valueAnimator2.start();
-        valueAnimator2.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float angle = (float) animation.getAnimatedValue();
-                mDynamicCircles.get(0).x = (float) (mBigCircle.x + mCurrentBigCircleRadius * Math.cos(Math.toRadians(angle)));
-                mDynamicCircles.get(0).y = (float) (mBigCircle.y + mCurrentBigCircleRadius * Math.sin(Math.toRadians(angle)));
-                mDynamicCircles.get(1).x = (float) (mBigCircle.x + mCurrentBigCircleRadius * Math.cos(Math.toRadians(angle + 180)));
-                mDynamicCircles.get(1).y = (float) (mBigCircle.y + mCurrentBigCircleRadius * Math.sin(Math.toRadians(angle + 180)));
-                invalidate();
-
-
-            }
-        });
+        float angle = mAngleChannel.valueAt(playTime);
+        float x = mBigCircle.x + mCurrentBigCircleRadius * FloatTrig.cos(angle);
+        float y = mBigCircle.y + mCurrentBigCircleRadius * FloatTrig.sin(angle);
+        boolean changed = x != mDynamicCircle.x || y != mDynamicCircle.y;
+        mDynamicCircle.x = x;
+        mDynamicCircle.y = y;
+        return changed;
     }
-    
+
+    /**
+     * 姿态：两个动态圆
+     *
+     * @param playTime
+     * @param out
+     */
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        float bigCircleRadius = mBigCircleRadiusChannel.valueAt(playTime);
+        float angle = mAngleChannel.valueAt(playTime);
+        float x = mBigCircle.x + bigCircleRadius * FloatTrig.cos(angle);
+        float y = mBigCircle.y + bigCircleRadius * FloatTrig.sin(angle);
+        float distanceSquared = 4 * AdhesionResult.distanceSquared(x, y, mBigCircle.x, mBigCircle.y);
+        float radius = getAdherentRadius(distanceSquared);
+        out.reset(2);
+        out.set(0, x, y, radius);
+        out.set(1, 2 * mBigCircle.x - x, 2 * mBigCircle.y - y, radius);
+        if (distanceSquared < mMaxAdherentLengthSquared) {
+            out.setAdhering(0);
+            out.setAdhering(1);
+        }
+    }
+
     /**
      * 圆类
      */
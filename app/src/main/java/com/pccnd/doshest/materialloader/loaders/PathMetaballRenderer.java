@@ -0,0 +1,48 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+/**
+ * 路径绘制，圆用 {@link Canvas#drawCircle}，粘连体写入复用的路径后用 {@link Canvas#drawPath}.
+ */
+final class PathMetaballRenderer extends MetaballRenderer {
+
+    /**
+     * 路径
+     */
+    private Path mPath = new Path();
+
+    /**
+     * 当前画布
+     */
+    private Canvas mCanvas;
+
+    /**
+     * 当前画笔
+     */
+    private Paint mPaint;
+
+    @Override
+    void begin(Canvas canvas, Paint paint) {
+        mCanvas = canvas;
+        mPaint = paint;
+    }
+
+    @Override
+    void drawCircle(float cx, float cy, float radius) {
+        mCanvas.drawCircle(cx, cy, radius, mPaint);
+    }
+
+    @Override
+    void drawAdherentBody(AdherentBody body) {
+        mCanvas.drawPath(body.writeTo(mPath), mPaint);
+    }
+
+    @Override
+    void end() {
+        mCanvas = null;
+        mPaint = null;
+    }
+}
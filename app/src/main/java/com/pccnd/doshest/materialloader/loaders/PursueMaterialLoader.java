@@ -15,16 +15,10 @@
  */
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.os.Handler;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,7 +28,7 @@ import java.util.List;
  * 
  * Created by doshest on 2015/11/7.
  */
-public class PursueMaterialLoader extends View {
+public class PursueMaterialLoader extends MaterialLoader {
 
     /**
      * 宽度
@@ -133,6 +127,7 @@ public class PursueMaterialLoader extends View {
             mCircle.radius = mCircleRadius;
             mCircle.x = mCircle.oldX = -mCircleRadius - (mDivideWidth + mCircleRadius * 2) * i;
             mCircle.y = (float)(mHeight / 2);
+            mCircle.moveChannel = FloatChannel.once(0, 1, 0, getDuration(i), Easing.ACCELERATE_DECELERATE);
             mCircles.add(mCircle);
         } 
     
@@ -147,11 +142,22 @@ public class PursueMaterialLoader extends View {
      */
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        mWidth = MeasureSpec.getSize(widthMeasureSpec);
-        setMeasuredDimension(resolveSizeAndState(mWidth, widthMeasureSpec, MeasureSpec.UNSPECIFIED), resolveSizeAndState(mHeight, heightMeasureSpec, MeasureSpec.UNSPECIFIED));
-       
-        /* 开始进入动画 */
-        startEnterAnim();
+        setMeasuredDimension(resolveSizeAndState(MeasureSpec.getSize(widthMeasureSpec), widthMeasureSpec, MeasureSpec.UNSPECIFIED), resolveSizeAndState(mHeight, heightMeasureSpec, MeasureSpec.UNSPECIFIED));
+    }
+
+    /**
+     * 宽度变化时只更新移动距离，动画进度不变，按新宽度重新计算位置
+     *
+     * @param w
+     * @param h
+     * @param oldw
+     * @param oldh
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mWidth = w;
+        refreshFrame();
     }
 
     /**
@@ -171,86 +177,120 @@ public class PursueMaterialLoader extends View {
     
 
     /**
-     * 开始进入动画
+     * 进入动画：第i个圆用 800 + 200 * i 毫秒从左侧移到中间，全部到达后停留 400 毫秒；
+     * 退出动画：同样的时长从中间移出右侧，然后重新进入
+     *
+     * @param playTime
      */
-    private void startEnterAnim() {
+    @Override
+    protected boolean onFrame(long playTime) {
+        float distance = getDistance();
+        boolean changed = false;
+        for (int i = 0; i < mCircleCount; i++) {
+            mCircle = mCircles.get(i);
+            float x = getCircleX(mCircle, playTime, distance);
+            changed |= x != mCircle.x;
+            mCircle.x = x;
+        }
+        return changed;
+    }
 
-        // 求所有小球长度一半的偏移量
-        float offset =  mCircleCount % 2 == 0 ?
-                (mCircleCount / 2) * (mDivideWidth + 2 * mCircleRadius) - mDivideWidth / 2 :
-                (mCircleCount / 2) * (mDivideWidth + 2 * mCircleRadius) + mCircleRadius;
-        
-        /* 进入动画 */
+    /**
+     * 姿态：所有圆
+     *
+     * @param playTime
+     * @param out
+     */
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        float distance = getDistance();
+        out.reset(mCircleCount);
         for (int i = 0; i < mCircleCount; i++) {
-            final Circle circle = mCircles.get(i);
-            ValueAnimator valueAnimator = ValueAnimator.ofFloat(circle.oldX, circle.oldX + mWidth / 2 + offset);
-            valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-            valueAnimator.setDuration(800 + 200 * i);
-            valueAnimator.start();
-            valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    float x = (float) animation.getAnimatedValue();
-                    circle.x = x;
-                    invalidate();
-                }
-            });
-            
-            if (i == mCircleCount - 1) {
-                valueAnimator.addListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        super.onAnimationEnd(animation);
-                        new Handler().postDelayed(new Runnable() {
-                            public void run() {
-                                startLeaveAnim();
-                            }
-                        }, 400);
-                    }
-                });
-            }
+            Circle circle = mCircles.get(i);
+            out.set(i, getCircleX(circle, playTime, distance), circle.y, circle.radius);
         }
     }
 
     /**
-     * 开始退出动画
+     * 每次进入或退出移动的距离
+     *
+     * @return 距离
      */
-    private void startLeaveAnim() {
+    private float getDistance() {
 
         // 求所有小球长度一半的偏移量
         float offset =  mCircleCount % 2 == 0 ?
                 (mCircleCount / 2) * (mDivideWidth + 2 * mCircleRadius) - mDivideWidth / 2 :
                 (mCircleCount / 2) * (mDivideWidth + 2 * mCircleRadius) + mCircleRadius;
-        
-        /* 退出动画 */
-        for (int i = 0; i < mCircleCount; i++) {
-            final Circle circle = mCircles.get(i);
-            ValueAnimator valueAnimator = ValueAnimator.ofFloat(circle.x, circle.x + mWidth / 2 + offset);
-            valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-            valueAnimator.setDuration(800 + 200 * i);
-            valueAnimator.start();
-            valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    float x = (float) animation.getAnimatedValue();
-                    circle.x = x;
-                    invalidate();
-                }
-            });
+        return mWidth / 2 + offset;
+    }
 
-            if (i == mCircleCount - 1) {
-                valueAnimator.addListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        super.onAnimationEnd(animation);
-                        startEnterAnim();
+    /**
+     * 某一播放时间圆的x坐标
+     *
+     * @param circle   圆
+     * @param playTime 播放时间
+     * @param distance 移动的距离
+     * @return x坐标
+     */
+    private float getCircleX(Circle circle, long playTime, float distance) {
+        long enterDuration = getDuration(mCircleCount - 1) + 400;
+        long cycleTime = playTime % (enterDuration + getDuration(mCircleCount - 1));
 
-                    }
-                });
-            }
+        /* 进入动画 */
+        if (cycleTime < enterDuration) {
+            return circle.oldX + distance * circle.moveChannel.valueAt(cycleTime);
         }
+        /* 退出动画 */
+        return circle.oldX + distance + distance * circle.moveChannel.valueAt(cycleTime - enterDuration);
+    }
+
+    /**
+     * 所有圆到达中间后停留的 400 毫秒
+     *
+     * @param playTime
+     * @return 停留结束的播放时间
+     */
+    @Override
+    protected long getHoldEnd(long playTime) {
+        long holdStart = getDuration(mCircleCount - 1);
+        long holdEnd = holdStart + 400;
+        long cycleTime = playTime % (holdEnd + getDuration(mCircleCount - 1));
+        if (cycleTime >= holdStart && cycleTime < holdEnd) {
+            return playTime - cycleTime + holdEnd;
+        }
+        return playTime;
+    }
+
+    /**
+     * 关闭动画时显示所有圆停在中间的画面
+     *
+     * @return 停留开始的播放时间
+     */
+    @Override
+    protected long getStaticFrameTime() {
+        return getDuration(mCircleCount - 1);
+    }
+
+    /**
+     * 第i个圆进入或退出的时长
+     *
+     * @param i
+     * @return 毫秒
+     */
+    private long getDuration(int i) {
+        return 800 + 200 * i;
+    }
+
+    /**
+     * 掉帧降级时最低一级关闭抗锯齿
+     *
+     * @param tier
+     */
+    @Override
+    protected void onQualityTierChanged(int tier) {
+        mPaint.setAntiAlias(tier < QualityController.TIER_ALIASED);
     }
-    
 
     /**
      * 圆类
@@ -260,5 +300,6 @@ public class PursueMaterialLoader extends View {
         public float x;
         public float y;
         public float radius;
+        public FloatChannel moveChannel;
     }
 }
@@ -0,0 +1,231 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import java.util.ArrayList;
+
+/**
+ * 根据掉帧情况调整加载器的绘制质量.
+ *
+ * 调度器每次直接请求下一帧时记下预期的帧时间，帧到达时迟到半个刷新间隔以上算作掉帧.
+ * 延迟请求从发出时算起，送达的垂直同步取决于发出请求前的耗时，迟到的是调度器自己，不统计.
+ * 最近 {@link #WINDOW_FRAMES} 帧内掉帧达到 {@link #DROP_THRESHOLD} 次就降一级；
+ * 连续 {@link #STABLE_FRAMES} 帧没有掉帧才升一级. 降级快、升级慢，避免在两级之间来回切换.
+ *
+ * 各级依次叠加：降低帧率、不画粘连体、关闭抗锯齿.
+ */
+public final class QualityController {
+
+    /**
+     * 完整质量
+     */
+    public static final int TIER_FULL = 0;
+
+    /**
+     * 帧率降到 {@link #REDUCED_FRAME_RATE}
+     */
+    public static final int TIER_REDUCED_FRAME_RATE = 1;
+
+    /**
+     * 不画粘连体
+     */
+    public static final int TIER_NO_ADHESION = 2;
+
+    /**
+     * 关闭抗锯齿
+     */
+    public static final int TIER_ALIASED = 3;
+
+    /**
+     * 降低后的帧率
+     */
+    static final int REDUCED_FRAME_RATE = 30;
+
+    /**
+     * 统计掉帧的窗口，单位帧
+     */
+    private static final int WINDOW_FRAMES = 30;
+
+    /**
+     * 窗口内掉帧达到这个次数时降级
+     */
+    private static final int DROP_THRESHOLD = 3;
+
+    /**
+     * 连续这么多帧没有掉帧时升级
+     */
+    private static final int STABLE_FRAMES = 180;
+
+    /**
+     * 等级变化监听
+     */
+    public interface OnTierChangedListener {
+
+        /**
+         * 等级变化
+         *
+         * @param tier 新的等级
+         */
+        void onTierChanged(int tier);
+    }
+
+    /**
+     * 监听
+     */
+    private final ArrayList<OnTierChangedListener> mListeners = new ArrayList<OnTierChangedListener>();
+
+    /**
+     * 当前等级
+     */
+    private int mTier = TIER_FULL;
+
+    /**
+     * 是否自动调整
+     */
+    private boolean mEnabled = true;
+
+    /**
+     * 请求下一帧时估计的刷新间隔，单位纳秒
+     */
+    private long mRefreshIntervalNanos;
+
+    /**
+     * 预期的下一帧时间，单位纳秒，小于0表示不观测
+     */
+    private long mDueTime = -1;
+
+    /**
+     * 当前窗口内观测的帧数
+     */
+    private int mWindowFrames;
+
+    /**
+     * 当前窗口内掉帧的次数
+     */
+    private int mWindowDrops;
+
+    /**
+     * 连续没有掉帧的帧数
+     */
+    private int mStableFrames;
+
+    /**
+     * 当前等级
+     *
+     * @return {@link #TIER_FULL}、{@link #TIER_REDUCED_FRAME_RATE}、{@link #TIER_NO_ADHESION} 或 {@link #TIER_ALIASED}
+     */
+    public int getTier() {
+        return mTier;
+    }
+
+    /**
+     * 设置是否自动调整，关闭时恢复完整质量
+     *
+     * @param enabled
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        resetWindow();
+        mStableFrames = 0;
+        if (!enabled) {
+            setTier(TIER_FULL);
+        }
+    }
+
+    /**
+     * 添加等级变化监听
+     *
+     * @param listener
+     */
+    public void addOnTierChangedListener(OnTierChangedListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    /**
+     * 移除等级变化监听
+     *
+     * @param listener
+     */
+    public void removeOnTierChangedListener(OnTierChangedListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * 调度器请求了下一帧
+     *
+     * @param frameTimeNanos        当前帧时间，单位纳秒
+     * @param delayMillis           请求的延迟，单位毫秒，不为0时这一帧不观测
+     * @param refreshIntervalNanos  估计的刷新间隔，单位纳秒
+     */
+    void onFrameRequested(long frameTimeNanos, long delayMillis, long refreshIntervalNanos) {
+        mRefreshIntervalNanos = refreshIntervalNanos;
+        mDueTime = delayMillis == 0 ? frameTimeNanos + refreshIntervalNanos : -1;
+    }
+
+    /**
+     * 调度器停止请求帧，下次请求前不观测
+     */
+    void onFramesCancelled() {
+        mDueTime = -1;
+    }
+
+    /**
+     * 帧到达
+     *
+     * @param frameTimeNanos 帧时间，单位纳秒
+     */
+    void onFrame(long frameTimeNanos) {
+        if (mDueTime < 0 || !mEnabled) {
+            mDueTime = -1;
+            return;
+        }
+
+        /* 帧时间是垂直同步的时间，晚到半个刷新间隔以上就是错过了至少一次垂直同步 */
+        boolean dropped = frameTimeNanos - mDueTime >= mRefreshIntervalNanos / 2;
+        mDueTime = -1;
+
+        /* 降级 */
+        mWindowFrames++;
+        if (dropped) {
+            mWindowDrops++;
+            mStableFrames = 0;
+        } else {
+            mStableFrames++;
+        }
+        if (mWindowDrops >= DROP_THRESHOLD) {
+            resetWindow();
+            setTier(Math.min(TIER_ALIASED, mTier + 1));
+        } else if (mWindowFrames >= WINDOW_FRAMES) {
+            resetWindow();
+        }
+
+        /* 升级 */
+        if (mStableFrames >= STABLE_FRAMES) {
+            mStableFrames = 0;
+            setTier(Math.max(TIER_FULL, mTier - 1));
+        }
+    }
+
+    /**
+     * 开始新的统计窗口
+     */
+    private void resetWindow() {
+        mWindowFrames = 0;
+        mWindowDrops = 0;
+    }
+
+    /**
+     * 设置等级并通知监听
+     *
+     * @param tier
+     */
+    private void setTier(int tier) {
+        if (tier == mTier) {
+            return;
+        }
+        mTier = tier;
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            mListeners.get(i).onTierChanged(tier);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+/**
+ * 估计屏幕刷新间隔.
+ *
+ * 只记录紧接着上一帧请求的帧之间的间隔，取最近 {@link #SAMPLE_COUNT} 个间隔的下四分位数：
+ * 掉帧得到的整数倍间隔和个别提前的帧都不会影响结果，刷新率变化后几帧内跟上.
+ * 没有样本时按 60fps 估计.
+ */
+final class RefreshIntervalEstimator {
+
+    /**
+     * 60fps 的刷新间隔，单位纳秒
+     */
+    static final long DEFAULT_INTERVAL_NANOS = 16666667;
+
+    /**
+     * 保留的间隔个数
+     */
+    private static final int SAMPLE_COUNT = 16;
+
+    /**
+     * 可信的最短间隔，单位纳秒，对应 250fps
+     */
+    private static final long MIN_INTERVAL_NANOS = 4000000;
+
+    /**
+     * 可信的最长间隔，单位纳秒，更长的间隔一定跨过了多次垂直同步
+     */
+    private static final long MAX_INTERVAL_NANOS = 100000000;
+
+    /**
+     * 最近的间隔，循环写入
+     */
+    private final long[] mSamples = new long[SAMPLE_COUNT];
+
+    /**
+     * 排序用的副本
+     */
+    private final long[] mSorted = new long[SAMPLE_COUNT];
+
+    /**
+     * 已有的间隔个数
+     */
+    private int mCount;
+
+    /**
+     * 下一个写入的位置
+     */
+    private int mNext;
+
+    /**
+     * 当前估计，单位纳秒
+     */
+    private long mIntervalNanos = DEFAULT_INTERVAL_NANOS;
+
+    /**
+     * 记录相邻两帧的间隔
+     *
+     * @param intervalNanos 间隔，单位纳秒
+     */
+    void addSample(long intervalNanos) {
+        if (intervalNanos < MIN_INTERVAL_NANOS || intervalNanos > MAX_INTERVAL_NANOS) {
+            return;
+        }
+        mSamples[mNext] = intervalNanos;
+        mNext = (mNext + 1) % SAMPLE_COUNT;
+        mCount = Math.min(mCount + 1, SAMPLE_COUNT);
+
+        /* 插入排序，最多十几个数 */
+        for (int i = 0; i < mCount; i++) {
+            long value = mSamples[i];
+            int j = i - 1;
+            while (j >= 0 && mSorted[j] > value) {
+                mSorted[j + 1] = mSorted[j];
+                j--;
+            }
+            mSorted[j + 1] = value;
+        }
+        mIntervalNanos = mSorted[mCount / 4];
+    }
+
+    /**
+     * 当前估计的刷新间隔
+     *
+     * @return 纳秒
+     */
+    long getIntervalNanos() {
+        return mIntervalNanos;
+    }
+}
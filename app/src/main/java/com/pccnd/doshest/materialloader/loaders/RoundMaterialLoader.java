@@ -15,15 +15,9 @@
  */
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
-import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.Animation;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,7 +27,7 @@ import java.util.List;
  * 
  * Created by doshest on 2015/11/7.
  */
-public class RoundMaterialLoader extends View {
+public class RoundMaterialLoader extends MetaballMaterialLoader {
 
     /**
      * 宽度
@@ -69,6 +63,11 @@ public class RoundMaterialLoader extends View {
      * 静态圆个数
      */
     private static int mStaticCircleCount = 8;
+
+    /**
+     * 相邻静态圆的间隔角度
+     */
+    private float mDivideAngle = 360f / mStaticCircleCount;
     
     /**
      * 最大粘连长度
@@ -76,9 +75,9 @@ public class RoundMaterialLoader extends View {
     private float mMaxAdherentLength = 2.5f  * mCurrentStaticCircleRadius;
 
     /**
-     * 静态圆
+     * 最大粘连长度的平方
      */
-    private Circle mStaticCircle;
+    private float mMaxAdherentLengthSquared = mMaxAdherentLength * mMaxAdherentLength;
 
     /**
      * 动态圆
@@ -91,14 +90,39 @@ public class RoundMaterialLoader extends View {
     private List<Circle> mStaticCircles = new ArrayList<Circle>();
 
     /**
-     * 画笔
+     * 动态圆当前角度
+     */
+    private float mDynamicAngle = -90;
+
+    /**
+     * 动态圆角度
      */
-    private Paint mPaint = new Paint();
+    private FloatChannel mDynamicAngleChannel = FloatChannel.repeat(-90, 270, 2500, Easing.ACCELERATE_DECELERATE);
 
     /**
-     * 路径
+     * 可能粘连的最大角度差，动态圆和静态圆都在抽象大圆上，弦长小于最大粘连长度时才粘连
      */
-    private Path mPath = new Path();
+    private float mAdherentAngle;
+
+    /**
+     * 上一帧可能粘连的第一个静态圆（未取模）
+     */
+    private int mFirstCandidate;
+
+    /**
+     * 上一帧可能粘连的最后一个静态圆（未取模）
+     */
+    private int mLastCandidate = -1;
+
+    /**
+     * 贝塞尔曲线偏移角度
+     */
+    private static final FloatTrig.Rotation ADHERENT_OFFSET = FloatTrig.rotation(45);
+
+    /**
+     * 粘连体
+     */
+    private AdherentBody mAdherentBody = new AdherentBody();
 
     /**
      * 默认颜色
@@ -143,6 +167,9 @@ public class RoundMaterialLoader extends View {
      */
     private void init() {
         
+        /* 粘连判断结果 */
+        mAdhesion = new AdhesionResult(mStaticCircleCount);
+
         /* 画笔 */
         mPaint.setColor(mColor);
         mPaint.setStyle(Paint.Style.FILL);
@@ -164,15 +191,19 @@ public class RoundMaterialLoader extends View {
         
         /* 静态圆 */
         for (int i = 0; i < mStaticCircleCount; i++) {
-            mStaticCircle = new Circle();
-            mStaticCircle.radius = mCurrentStaticCircleRadius;
-            mStaticCircle.x = (float)(mBigCircle.x + mBigCircleRadius * Math.cos(Math.toRadians(45 * i)));
-            mStaticCircle.y = (float)(mBigCircle.y + mBigCircleRadius * Math.sin(Math.toRadians(45 * i)));
-            mStaticCircles.add(mStaticCircle);
+            Circle staticCircle = new Circle();
+            staticCircle.radius = mCurrentStaticCircleRadius;
+            staticCircle.x = (float)(mBigCircle.x + mBigCircleRadius * Math.cos(Math.toRadians(mDivideAngle * i)));
+            staticCircle.y = (float)(mBigCircle.y + mBigCircleRadius * Math.sin(Math.toRadians(mDivideAngle * i)));
+            mStaticCircles.add(staticCircle);
+            mAdhesion.set(i, false, staticCircle.radius);
         }
+
+        /* 弦长 2 * R * sin(角度差 / 2) 小于最大粘连长度 */
+        mAdherentAngle = (float) Math.toDegrees(2 * Math.asin(Math.min(1, mMaxAdherentLength / (2 * mBigCircleRadius))));
         
-        /* 开始动画 */
-        startAnim();
+        /* 初始状态 */
+        onFrame(0);
     }
 
     /**
@@ -187,296 +218,125 @@ public class RoundMaterialLoader extends View {
     }
 
     /**
-     * 绘制
-     * 
-     * @param canvas
+     * 提交圆和粘连体
+     *
+     * @param renderer
      */
     @Override
-    protected void onDraw(Canvas canvas) {
+    void onDrawMetaballs(MetaballRenderer renderer) {
 
         /* 动态圆 */
-        canvas.drawCircle(mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius, mPaint);
-        
+        renderer.drawCircle(mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius);
+
         /* 静态圆 */
         for (int i = 0; i < mStaticCircleCount; i++) {
-            mStaticCircle = mStaticCircles.get(i);
-            
+            Circle staticCircle = mStaticCircles.get(i);
+            renderer.drawCircle(staticCircle.x, staticCircle.y, mAdhesion.radius[i]);
+
             /* 判断哪个圆可以作贝塞尔曲线 */
-            if (doAdhere(i)) {
-                canvas.drawCircle(mStaticCircle.x, mStaticCircle.y, mCurrentStaticCircleRadius, mPaint);
-                //drawAdherentBody(canvas, i);
-                Path path = drawAdherentBody(mStaticCircle.x,mStaticCircle.y,mCurrentStaticCircleRadius,45,
-                        mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius,45);
-                canvas.drawPath(path, mPaint);
-            } else {
-                canvas.drawCircle(mStaticCircle.x, mStaticCircle.y, mStaticCircle.radius, mPaint);
+            if (isAdhering(i)) {
+                mAdherentBody.set(staticCircle.x, staticCircle.y, mAdhesion.radius[i], ADHERENT_OFFSET,
+                        mDynamicCircle.x, mDynamicCircle.y, mDynamicCircle.radius, ADHERENT_OFFSET);
+                renderer.drawAdherentBody(mAdherentBody);
             }
         }
     }
 
     /**
-     * 画粘连体（通用方法）
+     * 粘连时按距离放大后的静态圆半径
      *
-     * @param cx1     圆心x1
-     * @param cy1     圆心y1
-     * @param r1      圆半径r1
-     * @param offset1 贝塞尔曲线偏移角度offset1
-     * @param cx2     圆心x2
-     * @param cy2     圆心y2
-     * @param r2      圆半径r2
-     * @param offset2 贝塞尔曲线偏移角度offset2
-     * @return
-     */
-    private Path drawAdherentBody(float cx1,float cy1,float r1,float offset1,float cx2,float cy2,float r2,float offset2) {
-        
-        /* 求三角函数 */
-        float degrees =(float) Math.toDegrees(Math.atan(Math.abs(cy2 - cy1) / Math.abs(cx2 - cx1)));
-        
-        /* 根据圆1与圆2的相对位置求四个点 */
-        float differenceX = cx1 - cx2;
-        float differenceY = cy1 - cy2;
+     * @param radius          静态圆半径
+     * @param distanceSquared 两圆心距离的平方
+     * @return 放大后的半径
+     */
+    private float getAdherentRadius(float radius, float distanceSquared) {
+        float distance = (float) Math.sqrt(distanceSquared);
+        float scale = mMaxStaticCircleRadiusScaleRate -  mMaxStaticCircleRadiusScaleRate * (distance / mMaxAdherentLength);
+        return radius * (1 + scale);
+    }
 
-        /* 两条贝塞尔曲线的四个端点 */
-        float x1,y1,x2,y2,x3,y3,x4,y4;
-        
-        /* 圆1在圆2的下边 */
-        if (differenceX == 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的上边 */
-        else if (differenceX == 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的右边 */
-        else if (differenceX > 0 && differenceY == 0) {
-            x2 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        } 
-        /* 圆1在圆2的左边 */
-        else if (differenceX < 0 && differenceY == 0 ) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的右下角 */
-        else if (differenceX > 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        /* 圆1在圆2的左上角 */
-        else if (differenceX < 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的左下角 */
-        else if (differenceX < 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的右上角 */
-        else {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 + r1* (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        
-        /* 贝塞尔曲线的控制点 */
-        float anchorX1,anchorY1,anchorX2,anchorY2;
-        
-        /* 圆1大于圆2 */
-        if (r1 > r2) {
-            anchorX1 = (x2 + x3) / 2;
-            anchorY1 = (y2 + y3) / 2;
-            anchorX2 = (x1 + x4) / 2;
-            anchorY2 = (y1 + y4) / 2;
+    /**
+     * 判断粘连范围，动态改变静态圆大小.
+     *
+     * 静态圆按 mDivideAngle 均匀分布，只有与动态圆角度差小于 mAdherentAngle 的静态圆才可能粘连，
+     * 由动态圆的角度直接求出这几个候选，开销与静态圆个数无关.
+     */
+    @Override
+    void evaluateAdhesion() {
+
+        /* 恢复上一帧的候选 */
+        for (int k = mFirstCandidate; k <= mLastCandidate; k++) {
+            int i = toStaticCirclePosition(k);
+            mAdhesion.set(i, false, mStaticCircles.get(i).radius);
         }
-        /* 圆1小于或等于圆2 */
-        else {
-            anchorX1 = (x1 + x4) / 2;
-            anchorY1 = (y1 + y4) / 2;
-            anchorX2 = (x2 + x3) / 2;
-            anchorY2 = (y2 + y3) / 2;
+
+        /* 本帧的候选 */
+        mFirstCandidate = (int) Math.ceil((mDynamicAngle - mAdherentAngle) / mDivideAngle);
+        mLastCandidate = Math.min(mFirstCandidate + mStaticCircleCount - 1, (int) Math.floor((mDynamicAngle + mAdherentAngle) / mDivideAngle));
+
+        for (int k = mFirstCandidate; k <= mLastCandidate; k++) {
+            int i = toStaticCirclePosition(k);
+            Circle staticCircle = mStaticCircles.get(i);
+            float distanceSquared = AdhesionResult.distanceSquared(mDynamicCircle.x, mDynamicCircle.y, staticCircle.x, staticCircle.y);
+
+            /* 粘连时按距离放大静态圆 */
+            if (distanceSquared < mMaxAdherentLengthSquared) {
+                mAdhesion.set(i, true, getAdherentRadius(staticCircle.radius, distanceSquared));
+            }
         }
-        
-        /* 画粘连体 */
-        Path path = new Path();
-        path.reset();
-        path.moveTo(x1, y1);
-        path.quadTo(anchorX1, anchorY1, x2, y2);
-        path.lineTo(x4, y4);
-        path.quadTo(anchorX2, anchorY2, x3, y3);
-        path.lineTo(x1, y1);
-
-        return path;
     }
 
     /**
-     * 画粘连体（专用方法）
-     * 
-     * @param canvas
-     * @param position
+     * 角度序号换算为静态圆序号
+     *
+     * @param k 角度序号，可以为负数或超过静态圆个数
+     * @return 静态圆序号
      */
-    @Deprecated
-    private void drawAdherentBody(Canvas canvas,int position) {
-    
-        mStaticCircle = mStaticCircles.get(position);
-        
-        /* 求三角函数 */
-        float angle =(float) Math.toDegrees(Math.atan(Math.abs(mDynamicCircle.y - mStaticCircle.y) / Math.abs(mDynamicCircle.x - mStaticCircle.x)));
-       
-        /* 根据动态球与静态球的相对位置求四个点 */
-        float differenceX = mDynamicCircle.x - mStaticCircle.x;
-        float differenceY = mDynamicCircle.y - mStaticCircle.y;
-        float staticX1,staticY1,staticX2,staticY2,dynamicX1,dynamicY1,dynamicX2,dynamicY2;
-        
-        if (differenceX > 0 && differenceY > 0) {
-            staticX1 = mStaticCircle.x - mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            staticY1 = mStaticCircle.y + mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-            staticX2 = mStaticCircle.x + mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(angle - 45));
-            staticY2 = mStaticCircle.y + mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(angle - 45));
-            dynamicX1 = mDynamicCircle.x - mDynamicCircle.radius * (float) Math.cos(Math.toRadians(angle - 45));
-            dynamicY1 = mDynamicCircle.y - mDynamicCircle.radius * (float) Math.sin(Math.toRadians(angle - 45));
-            dynamicX2 = mDynamicCircle.x + mDynamicCircle.radius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            dynamicY2 = mDynamicCircle.y - mDynamicCircle.radius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-        } else if (differenceX < 0 && differenceY < 0) {
-            staticX1 = mStaticCircle.x - mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(angle - 45));
-            staticY1 = mStaticCircle.y - mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(angle - 45));
-            staticX2 = mStaticCircle.x + mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            staticY2 = mStaticCircle.y - mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-            dynamicX1 = mDynamicCircle.x - mDynamicCircle.radius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            dynamicY1 = mDynamicCircle.y + mDynamicCircle.radius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-            dynamicX2 = mDynamicCircle.x + mDynamicCircle.radius * (float) Math.cos(Math.toRadians(angle - 45));
-            dynamicY2 = mDynamicCircle.y + mDynamicCircle.radius * (float) Math.sin(Math.toRadians(angle - 45));
-        } else if (differenceX < 0 && differenceY > 0) {
-            staticX1 = mStaticCircle.x - mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(angle - 45));
-            staticY1 = mStaticCircle.y + mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(angle - 45));
-            staticX2 = mStaticCircle.x + mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            staticY2 = mStaticCircle.y + mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-            dynamicX1 = mDynamicCircle.x - mDynamicCircle.radius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            dynamicY1 = mDynamicCircle.y - mDynamicCircle.radius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-            dynamicX2 = mDynamicCircle.x + mDynamicCircle.radius * (float) Math.cos(Math.toRadians(angle - 45));
-            dynamicY2 = mDynamicCircle.y - mDynamicCircle.radius * (float) Math.sin(Math.toRadians(angle - 45));
-        } else {
-            staticX1 = mStaticCircle.x - mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            staticY1 = mStaticCircle.y - mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-            staticX2 = mStaticCircle.x + mCurrentStaticCircleRadius * (float) Math.cos(Math.toRadians(angle - 45));
-            staticY2 = mStaticCircle.y - mCurrentStaticCircleRadius * (float) Math.sin(Math.toRadians(angle - 45));
-            dynamicX1 = mDynamicCircle.x - mDynamicCircle.radius * (float) Math.cos(Math.toRadians(angle - 45));
-            dynamicY1 = mDynamicCircle.y + mDynamicCircle.radius * (float) Math.sin(Math.toRadians(angle - 45));
-            dynamicX2 = mDynamicCircle.x + mDynamicCircle.radius * (float) Math.cos(Math.toRadians(180 - 45 - angle));
-            dynamicY2 = mDynamicCircle.y + mDynamicCircle.radius * (float) Math.sin(Math.toRadians(180 - 45 - angle));
-        }
-        
-        /* 控制点 */
-        float anchorX1 = ( staticX1 + dynamicX2 ) / 2;
-        float anchorY1 = ( staticY1 + dynamicY2 ) / 2;
-        
-        float anchorX2 = ( staticX2 + dynamicX1 ) / 2;
-        float anchorY2 = ( staticY2 + dynamicY1 ) / 2;
-        
-        
-        /* 画贝塞尔曲线 */
-        mPath.reset();
-        mPath.moveTo(staticX1, staticY1);
-        mPath.quadTo(anchorX1, anchorY1, dynamicX1, dynamicY1);
-        mPath.lineTo(dynamicX2, dynamicY2);
-        mPath.quadTo(anchorX2, anchorY2, staticX2, staticY2);
-        mPath.lineTo(staticX1, staticY1);
-        canvas.drawPath(mPath, mPaint);
+    private int toStaticCirclePosition(int k) {
+        int position = k % mStaticCircleCount;
+        return position < 0 ? position + mStaticCircleCount : position;
     }
 
     /**
-     * 判断粘连范围，动态改变静态圆大小
-     * 
-     * @param position
-     * @return
+     * 动态圆沿抽象大圆转圈，一圈 2500 毫秒
+     *
+     * @param playTime
      */
-    private boolean doAdhere(int position) {
-
-        mStaticCircle = mStaticCircles.get(position);
-        
-        /* 半径变化 */
-        float distance = (float) Math.sqrt(Math.pow(mDynamicCircle.x - mStaticCircle.x, 2) + Math.pow(mDynamicCircle.y - mStaticCircle.y, 2));
-        float scale = mMaxStaticCircleRadiusScaleRate -  mMaxStaticCircleRadiusScaleRate * (distance / mMaxAdherentLength);
-        mCurrentStaticCircleRadius = mStaticCircle.radius * (1 + scale);
-        
-        /* 判断是否可以作贝塞尔曲线 */
-        if (distance < mMaxAdherentLength) 
-            return true;
-        else
-            return false;
+    @Override
+    protected boolean onFrame(long playTime) {
+        float angle = mDynamicAngleChannel.valueAt(playTime);
+        boolean changed = angle != mDynamicAngle;
+        mDynamicAngle = angle;
+        mDynamicCircle.x = mBigCircle.x + mBigCircleRadius * FloatTrig.cos(mDynamicAngle);
+        mDynamicCircle.y = mBigCircle.y + mBigCircleRadius * FloatTrig.sin(mDynamicAngle);
+        return changed;
     }
 
     /**
-     * 开始动画
+     * 姿态：动态圆，然后是所有静态圆
+     *
+     * @param playTime
+     * @param out
      */
-    private void startAnim() {
-        
-        /* 动态圆坐标动画 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(-90, 270);
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(2500);
-        valueAnimator.setRepeatCount(Animation.INFINITE);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float angle = (float) animation.getAnimatedValue();
-                mDynamicCircle.x = (float)(mBigCircle.x + mBigCircleRadius * Math.cos(Math.toRadians(angle)));
-                mDynamicCircle.y = (float)(mBigCircle.y + mBigCircleRadius * Math.sin(Math.toRadians(angle)));
-                invalidate();
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        float angle = mDynamicAngleChannel.valueAt(playTime);
+        float x = mBigCircle.x + mBigCircleRadius * FloatTrig.cos(angle);
+        float y = mBigCircle.y + mBigCircleRadius * FloatTrig.sin(angle);
+        out.reset(1 + mStaticCircleCount);
+        out.set(0, x, y, mDynamicCircle.radius);
+        for (int i = 0; i < mStaticCircleCount; i++) {
+            Circle staticCircle = mStaticCircles.get(i);
+            float radius = staticCircle.radius;
+            float distanceSquared = AdhesionResult.distanceSquared(x, y, staticCircle.x, staticCircle.y);
+            if (distanceSquared < mMaxAdherentLengthSquared) {
+                radius = getAdherentRadius(radius, distanceSquared);
+                out.setAdhering(0);
+                out.setAdhering(i + 1);
             }
-        });
+            out.set(i + 1, staticCircle.x, staticCircle.y, radius);
+        }
     }
-    
 
     /**
      * 圆类
@@ -15,17 +15,9 @@
  */
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.Context;
-import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.os.Handler;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -35,7 +27,7 @@ import java.util.List;
  * 
  * Created by doshest on 2015/11/7.
  */
-public class ScatterMaterialLoader extends View {
+public class ScatterMaterialLoader extends MetaballMaterialLoader {
 
     /**
      * 宽度
@@ -77,11 +69,6 @@ public class ScatterMaterialLoader extends View {
      */
     private static int mSmallCircleCount = 8;
 
-    /**
-     * 小圆
-     */
-    private Circle mSmallCircle;
-
     /**
      * 中间圆
      */
@@ -93,19 +80,64 @@ public class ScatterMaterialLoader extends View {
     private List<Circle> mSmallCircles = new ArrayList<Circle>();
 
     /**
-     * 表示哪一个小圆
+     * 开始前的延时
+     */
+    private static final long START_DELAY = 200;
+
+    /**
+     * 飞出或飞入的时长
+     */
+    private static final long SCATTER_DURATION = 3600;
+
+    /**
+     * 每个小圆轨道半径变化的时长，小圆依次变化
+     */
+    private static final long ORBIT_DURATION = 400;
+
+    /**
+     * 飞出时中间圆半径的变化
      */
-    private int mPosition;
+    private FloatChannel mMiddleScatterChannel;
 
     /**
-     * 画笔
+     * 飞入时中间圆半径的变化
      */
-    private Paint mPaint = new Paint();
+    private FloatChannel mMiddleGatherChannel;
 
     /**
-     * 路径
+     * 飞出或飞入时小圆转过的角度
      */
-    private Path mPath = new Path();
+    private FloatChannel mAngleChannel = FloatChannel.once(0, 360, 0, SCATTER_DURATION, Easing.ACCELERATE_DECELERATE);
+
+    /**
+     * 关键帧表：延时、飞出、飞入
+     */
+    private KeyframeSequencer mSequencer = new KeyframeSequencer(3);
+
+    /**
+     * 延时是第几步
+     */
+    private int mDelayStep;
+
+    /**
+     * 飞入是第几步
+     */
+    private int mGatherStep;
+
+    /**
+     * 中间圆上的贝塞尔曲线偏移角度
+     */
+    private static final FloatTrig.Rotation MIDDLE_CIRCLE_OFFSET = FloatTrig.rotation(20);
+
+    /**
+     * 小圆上的贝塞尔曲线偏移角度
+     */
+    private static final FloatTrig.Rotation SMALL_CIRCLE_OFFSET = FloatTrig.rotation(45);
+
+    /**
+     * 粘连体
+     */
+    private AdherentBody mAdherentBody = new AdherentBody();
 
     /**
      * 默认颜色
@@ -151,6 +183,9 @@ public class ScatterMaterialLoader extends View {
      */
     private void init() {
         
+        /* 粘连判断结果 */
+        mAdhesion = new AdhesionResult(mSmallCircleCount);
+
         /* 画笔 */
         mPaint.setColor(mColor);
         mPaint.setStyle(Paint.Style.FILL);
@@ -168,27 +203,36 @@ public class ScatterMaterialLoader extends View {
         mMiddleCircle.radius = mCurrentMiddleCircleRadius;
         mMiddleCircle.x = mBigCircle.x;
         mMiddleCircle.y = mBigCircle.y;
+        mMiddleScatterChannel = FloatChannel.once(mMiddleCircle.radius, mMiddleCircle.radius * (1 - mMaxCircleRadiusScaleRate), 0, SCATTER_DURATION, Easing.ACCELERATE_DECELERATE);
+        mMiddleGatherChannel = FloatChannel.once(mMiddleCircle.radius * (1 - mMaxCircleRadiusScaleRate), mMiddleCircle.radius, 0, SCATTER_DURATION, Easing.ACCELERATE_DECELERATE);
+        float expandedBigCircleRadius = mBigCircleRadius * (1 + mMaxCircleRadiusScaleRate) + 20;
+
+        /* 关键帧：延时、飞出、飞入 */
+        mDelayStep = mSequencer.append(START_DELAY);
+        mSequencer.append(SCATTER_DURATION);
+        mGatherStep = mSequencer.append(SCATTER_DURATION);
         
         /* 静态圆 */
         for (int i = 0; i < mSmallCircleCount; i++) {
-            mSmallCircle = new Circle();
-            mSmallCircle.radius = mCurrentSmallCircleRadius;
-            mSmallCircle.currentBigCircleRadius = 0;
-            mSmallCircle.radian = (float)Math.toRadians(-90 + 45 * i);
-            mSmallCircle.x = (float)(mMiddleCircle.x + (mCurrentMiddleCircleRadius - mSmallCircle.radius) * Math.cos(mSmallCircle.radian));
-            mSmallCircle.y = (float)(mMiddleCircle.y + (mCurrentMiddleCircleRadius - mSmallCircle.radius) * Math.sin(mSmallCircle.radian));
-            mSmallCircles.add(mSmallCircle);
+            Circle smallCircle = new Circle();
+            smallCircle.radius = mCurrentSmallCircleRadius;
+            smallCircle.currentBigCircleRadius = 0;
+            smallCircle.degrees = -90 + 45 * i;
+            smallCircle.x = mMiddleCircle.x + (mCurrentMiddleCircleRadius - smallCircle.radius) * FloatTrig.cos(smallCircle.degrees);
+            smallCircle.y = mMiddleCircle.y + (mCurrentMiddleCircleRadius - smallCircle.radius) * FloatTrig.sin(smallCircle.degrees);
+
+            /* 轨道半径从当时的中间圆边缘开始变化，飞出按顺序，飞入按逆序 */
+            long scatterStart = ORBIT_DURATION * i;
+            long gatherStart = ORBIT_DURATION * (mSmallCircleCount - 1 - i);
+            smallCircle.scatterChannel = FloatChannel.once(mMiddleScatterChannel.valueAt(scatterStart) - smallCircle.radius,
+                    expandedBigCircleRadius, scatterStart, ORBIT_DURATION, Easing.ACCELERATE_DECELERATE);
+            smallCircle.gatherChannel = FloatChannel.once(expandedBigCircleRadius,
+                    mMiddleGatherChannel.valueAt(gatherStart) - smallCircle.radius, gatherStart, ORBIT_DURATION, Easing.ACCELERATE_DECELERATE);
+            mSmallCircles.add(smallCircle);
         }
 
-        /* 延时一段时间开启动画 */
-        new Handler().postDelayed(new Runnable() {
-            public void run() {
-                startBigCircleRadiusAnim(0);
-                startAngleAndMiddleCircleRadiusAnim();
-            }
-        }, 200);   
-        
-        
+        /* 初始状态 */
+        onFrame(0);
     }
 
     /**
@@ -203,464 +247,180 @@ public class ScatterMaterialLoader extends View {
     }
 
     /**
-     * 绘制
-     * 
-     * @param canvas
+     * 提交圆和粘连体
+     *
+     * @param renderer
      */
     @Override
-    protected void onDraw(Canvas canvas) {
-        
+    void onDrawMetaballs(MetaballRenderer renderer) {
 
         /* 中间圆 */
-        canvas.drawCircle(mMiddleCircle.x, mMiddleCircle.y, mCurrentMiddleCircleRadius, mPaint);
+        renderer.drawCircle(mMiddleCircle.x, mMiddleCircle.y, mCurrentMiddleCircleRadius);
         
         /* 小圆 */
         for (int i = 0; i < mSmallCircleCount; i++) {
-            mSmallCircle = mSmallCircles.get(i);
+            Circle smallCircle = mSmallCircles.get(i);
             
             /* 小圆 */
-            canvas.drawCircle(mSmallCircle.x, mSmallCircle.y, mSmallCircle.radius, mPaint);
+            renderer.drawCircle(smallCircle.x, smallCircle.y, smallCircle.radius);
             
             /* 判断哪个圆可以作贝塞尔曲线 */
-            if (doAdhere(i)) {
-                //drawAdherentBody(canvas, i);
-                Path path = drawAdherentBody(mMiddleCircle.x,mMiddleCircle.y,mCurrentMiddleCircleRadius,20,
-                        mSmallCircle.x, mSmallCircle.y, mSmallCircle.radius,45);
-                canvas.drawPath(path, mPaint);
+            if (isAdhering(i)) {
+                mAdherentBody.set(mMiddleCircle.x,mMiddleCircle.y,mCurrentMiddleCircleRadius, MIDDLE_CIRCLE_OFFSET,
+                        smallCircle.x, smallCircle.y, smallCircle.radius, SMALL_CIRCLE_OFFSET);
+                renderer.drawAdherentBody(mAdherentBody);
             }
-           
         }
     }
 
     /**
-     * 画粘连体（通用方法）
+     * 判断粘连范围.
      *
-     * @param cx1     圆心x1
-     * @param cy1     圆心y1
-     * @param r1      圆半径r1
-     * @param offset1 贝塞尔曲线偏移角度offset1
-     * @param cx2     圆心x2
-     * @param cy2     圆心y2
-     * @param r2      圆半径r2
-     * @param offset2 贝塞尔曲线偏移角度offset2
-     * @return
-     */
-    private Path drawAdherentBody(float cx1,float cy1,float r1,float offset1,float cx2,float cy2,float r2,float offset2) {
-        
-        /* 求三角函数 */
-        float degrees =(float) Math.toDegrees(Math.atan(Math.abs(cy2 - cy1) / Math.abs(cx2 - cx1)));
-        
-        /* 根据圆1与圆2的相对位置求四个点 */
-        float differenceX = cx1 - cx2;
-        float differenceY = cy1 - cy2;
+     * 小圆都绕中间圆的圆心转，与中间圆的距离就是轨道半径，不用计算距离.
+     * 不像 Round 和 HorizonTal 那样按位置筛选候选：等待飞出或已经飞入的小圆都在粘连范围内，
+     * 候选最多就是全部 8 个，逐个比较轨道半径已经足够.
+     */
+    @Override
+    void evaluateAdhesion() {
 
-        /* 两条贝塞尔曲线的四个端点 */
-        float x1,y1,x2,y2,x3,y3,x4,y4;
-        
-        /* 圆1在圆2的下边 */
-        if (differenceX == 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.cos(Math.toRadians(offset1));
+        /* 粘连距离随中间圆半径变化 */
+        float maxAdherentLength = mCurrentMiddleCircleRadius + mCurrentSmallCircleRadius * 3;
 
+        for (int i = 0; i < mSmallCircleCount; i++) {
+            Circle smallCircle = mSmallCircles.get(i);
+            mAdhesion.set(i, smallCircle.currentBigCircleRadius < maxAdherentLength, smallCircle.radius);
         }
-        /* 圆1在圆2的上边 */
-        else if (differenceX == 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            y2 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            y3 = cy1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-
-        }
-        /* 圆1在圆2的右边 */
-        else if (differenceX > 0 && differenceY == 0) {
-            x2 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 - r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        } 
-        /* 圆1在圆2的左边 */
-        else if (differenceX < 0 && differenceY == 0 ) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(offset2));
-            x4 = cx2 - r2 * (float) Math.cos(Math.toRadians(offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(offset2));
-            x1 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(offset1));
-        }
-        /* 圆1在圆2的右下角 */
-        else if (differenceX > 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        /* 圆1在圆2的左上角 */
-        else if (differenceX < 0 && differenceY < 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的左下角 */
-        else if (differenceX < 0 && differenceY > 0) {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y2 = cy2 + r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y4 = cy2 + r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y1 = cy1 - r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y3 = cy1 - r1 * (float) Math.sin(Math.toRadians(degrees - offset1));
-        }
-        /* 圆1在圆2的右上角 */
-        else {
-            x2 = cx2 - r2 * (float) Math.cos(Math.toRadians(180 - offset2 - degrees));
-            y2 = cy2 - r2 * (float) Math.sin(Math.toRadians(180 - offset2 - degrees));
-            x4 = cx2 + r2 * (float) Math.cos(Math.toRadians(degrees - offset2));
-            y4 = cy2 - r2 * (float) Math.sin(Math.toRadians(degrees - offset2));
-            x1 = cx1 - r1 * (float) Math.cos(Math.toRadians(degrees - offset1));
-            y1 = cy1 + r1* (float) Math.sin(Math.toRadians(degrees - offset1));
-            x3 = cx1 + r1 * (float) Math.cos(Math.toRadians(180 - offset1 - degrees));
-            y3 = cy1 + r1 * (float) Math.sin(Math.toRadians(180 - offset1 - degrees));
-        }
-        
-        /* 贝塞尔曲线的控制点 */
-        float anchorX1,anchorY1,anchorX2,anchorY2;
-        
-        /* 圆1大于圆2 */
-        if (r1 > r2) {
-            anchorX1 = (x2 + x3) / 2;
-            anchorY1 = (y2 + y3) / 2;
-            anchorX2 = (x1 + x4) / 2;
-            anchorY2 = (y1 + y4) / 2;
-        }
-        /* 圆1小于或等于圆2 */
-        else {
-            anchorX1 = (x1 + x4) / 2;
-            anchorY1 = (y1 + y4) / 2;
-            anchorX2 = (x2 + x3) / 2;
-            anchorY2 = (y2 + y3) / 2;
-        }
-        
-        /* 画粘连体 */
-        Path path = new Path();
-        path.reset();
-        path.moveTo(x1, y1);
-        path.quadTo(anchorX1, anchorY1, x2, y2);
-        path.lineTo(x4, y4);
-        path.quadTo(anchorX2, anchorY2, x3, y3);
-        path.lineTo(x1, y1);
-
-        return path;
     }
-    
+
     /**
-     * 画粘连体（专用方法）
-     * 
-     * @param canvas
-     * @param position
+     * 延时 200 毫秒后，小圆依次飞出并转一圈，同时中间圆缩小；再依次逆序飞入并转一圈，同时中间圆恢复
+     *
+     * @param playTime
      */
-    @Deprecated
-    private void drawAdherentBody(Canvas canvas,int position) {
-    
-        mSmallCircle = mSmallCircles.get(position);
-        
-        /* 求三角函数 */
-        float angle =(float) Math.toDegrees(Math.atan(Math.abs(mMiddleCircle.y - mSmallCircle.y) / Math.abs(mMiddleCircle.x - mSmallCircle.x)));
-        float offset1 = 20;
-        float offset2 = 45;
-        
-        /* 根据动态球与静态球的相对位置求四个点 */
-        float differenceX = mMiddleCircle.x - mSmallCircle.x;
-        float differenceY = mMiddleCircle.y - mSmallCircle.y;
-        float smallX1,smallY1,smallX2,smallY2,middleX1,middleY1,middleX2,middleY2;
-        
-        if (differenceX > 0 && differenceY > 0) {
-            smallX1 = mSmallCircle.x - mSmallCircle.radius * (float) Math.cos(Math.toRadians(180 - offset2 - angle));
-            smallY1 = mSmallCircle.y + mSmallCircle.radius * (float) Math.sin(Math.toRadians(180 - offset2 - angle));
-            smallX2 = mSmallCircle.x + mSmallCircle.radius * (float) Math.cos(Math.toRadians(angle - offset2));
-            smallY2 = mSmallCircle.y + mSmallCircle.radius * (float) Math.sin(Math.toRadians(angle - offset2));
-            middleX1 = mMiddleCircle.x - mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(angle - offset1));
-            middleY1 = mMiddleCircle.y - mCurrentMiddleCircleRadius * (float) Math.sin(Math.toRadians(angle - offset1));
-            middleX2 = mMiddleCircle.x + mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(180 - offset1 - angle));
-            middleY2 = mMiddleCircle.y - mCurrentMiddleCircleRadius * (float) Math.sin(Math.toRadians(180 - offset1 - angle));
-        } else if (differenceX < 0 && differenceY < 0) {
-            smallX1 = mSmallCircle.x - mSmallCircle.radius * (float) Math.cos(Math.toRadians(angle - offset2));
-            smallY1 = mSmallCircle.y - mSmallCircle.radius * (float) Math.sin(Math.toRadians(angle - offset2));
-            smallX2 = mSmallCircle.x + mSmallCircle.radius * (float) Math.cos(Math.toRadians(180 - offset2 - angle));
-            smallY2 = mSmallCircle.y - mSmallCircle.radius * (float) Math.sin(Math.toRadians(180 - offset2 - angle));
-            middleX1 = mMiddleCircle.x - mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(180 - offset1 - angle));
-            middleY1 = mMiddleCircle.y + mCurrentMiddleCircleRadius * (float) Math.sin(Math.toRadians(180 - offset1 - angle));
-            middleX2 = mMiddleCircle.x + mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(angle - offset1));
-            middleY2 = mMiddleCircle.y + mCurrentMiddleCircleRadius * (float) Math.sin(Math.toRadians(angle - offset1));
-        } else if (differenceX < 0 && differenceY > 0) {
-            smallX1 = mSmallCircle.x - mSmallCircle.radius * (float) Math.cos(Math.toRadians(angle - offset2));
-            smallY1 = mSmallCircle.y + mSmallCircle.radius * (float) Math.sin(Math.toRadians(angle - offset2));
-            smallX2 = mSmallCircle.x + mSmallCircle.radius * (float) Math.cos(Math.toRadians(180 - offset2 - angle));
-            smallY2 = mSmallCircle.y + mSmallCircle.radius * (float) Math.sin(Math.toRadians(180 - offset2 - angle));
-            middleX1 = mMiddleCircle.x - mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(180 - offset1 - angle));
-            middleY1 = mMiddleCircle.y - mCurrentMiddleCircleRadius * (float) Math.sin(Math.toRadians(180 - offset1 - angle));
-            middleX2 = mMiddleCircle.x + mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(angle - offset1));
-            middleY2 = mMiddleCircle.y - mCurrentMiddleCircleRadius * (float) Math.sin(Math.toRadians(angle - offset1));
-        } else {
-            smallX1 = mSmallCircle.x - mSmallCircle.radius * (float) Math.cos(Math.toRadians(180 - offset2 - angle));
-            smallY1 = mSmallCircle.y - mSmallCircle.radius * (float) Math.sin(Math.toRadians(180 - offset2 - angle));
-            smallX2 = mSmallCircle.x + mSmallCircle.radius * (float) Math.cos(Math.toRadians(angle - offset2));
-            smallY2 = mSmallCircle.y - mSmallCircle.radius * (float) Math.sin(Math.toRadians(angle - offset2));
-            middleX1 = mMiddleCircle.x - mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(angle - offset1));
-            middleY1 = mMiddleCircle.y + mCurrentMiddleCircleRadius* (float) Math.sin(Math.toRadians(angle - offset1));
-            middleX2 = mMiddleCircle.x + mCurrentMiddleCircleRadius * (float) Math.cos(Math.toRadians(180 - offset1 - angle));
-            middleY2 = mMiddleCircle.y + mCurrentMiddleCircleRadius * (float) Math.sin(Math.toRadians(180 - offset1 - angle));
+    @Override
+    protected boolean onFrame(long playTime) {
+        long cycleTime = mSequencer.cycleTime(playTime);
+        int step = mSequencer.stepAt(cycleTime);
+
+        boolean changed = false;
+
+        /* 延时 */
+        if (step == mDelayStep) {
+            changed |= mCurrentMiddleCircleRadius != mMiddleCircle.radius;
+            mCurrentMiddleCircleRadius = mMiddleCircle.radius;
+            for (int i = 0; i < mSmallCircleCount; i++) {
+                Circle smallCircle = mSmallCircles.get(i);
+                smallCircle.currentBigCircleRadius = getOrbitRadius(smallCircle, i, step, 0);
+                changed |= updateSmallCircle(smallCircle, 0);
+            }
+            return changed;
         }
-        
-        /* 控制点 */
-        float anchorX1 = ( smallX1 + middleX2 ) / 2;
-        float anchorY1 = ( smallY1 + middleY2 ) / 2;
 
-        float anchorX2 = ( smallX2 + middleX1 ) / 2;
-        float anchorY2 = ( smallY2 + middleY1 ) / 2;
-        
-        
-        /* 画贝塞尔曲线 */
-        mPath.reset();
-        mPath.moveTo(smallX1, smallY1);
-        mPath.quadTo(anchorX1, anchorY1, middleX1, middleY1);
-        mPath.lineTo(middleX2, middleY2);
-        mPath.quadTo(anchorX2, anchorY2, smallX2, smallY2);
-        mPath.lineTo(smallX1, smallY1);
-        canvas.drawPath(mPath, mPaint);
-        
+        /* 飞出或飞入 */
+        boolean gathering = step == mGatherStep;
+        long time = mSequencer.localTime(step, cycleTime);
+        float angle = mAngleChannel.valueAt(time);
+        float middleCircleRadius = (gathering ? mMiddleGatherChannel : mMiddleScatterChannel).valueAt(time);
+        changed |= middleCircleRadius != mCurrentMiddleCircleRadius;
+        mCurrentMiddleCircleRadius = middleCircleRadius;
+        for (int i = 0; i < mSmallCircleCount; i++) {
+            Circle smallCircle = mSmallCircles.get(i);
+            smallCircle.currentBigCircleRadius = getOrbitRadius(smallCircle, i, step, time);
+            changed |= updateSmallCircle(smallCircle, angle);
+        }
+        return changed;
     }
 
     /**
-     * 判断粘连范围
-     * 
-     * @param position
-     * @return
+     * 姿态：中间圆，然后是所有小圆
+     *
+     * @param playTime
+     * @param out
      */
-    private boolean doAdhere(int position) {
-
-        mSmallCircle = mSmallCircles.get(position);
-        
-        /* 半径变化 */
-        float distance = (float) Math.sqrt(Math.pow(mMiddleCircle.x - mSmallCircle.x, 2) + Math.pow(mMiddleCircle.y - mSmallCircle.y, 2));
-        
-        /* 判断是否可以作贝塞尔曲线 */
-        if (distance < mCurrentMiddleCircleRadius + mCurrentSmallCircleRadius * 3) 
-            return true;
-        else
-            return false;
-    }
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        long cycleTime = mSequencer.cycleTime(playTime);
+        int step = mSequencer.stepAt(cycleTime);
+        long time = mSequencer.localTime(step, cycleTime);
+        float angle = 0;
+        float middleCircleRadius = mMiddleCircle.radius;
+        if (step != mDelayStep) {
+            angle = mAngleChannel.valueAt(time);
+            middleCircleRadius = (step == mGatherStep ? mMiddleGatherChannel : mMiddleScatterChannel).valueAt(time);
+        }
 
-    /**
-     * 开始当前抽象大圆半径变化动画
-     * 
-     * @param pos
-     */
-    private void startBigCircleRadiusAnim(int pos) {
-        if ( pos == mSmallCircleCount)
-            return;
+        /* 粘连距离随中间圆半径变化，与轨道半径比较 */
+        float maxAdherentLength = middleCircleRadius + mCurrentSmallCircleRadius * 3;
 
-        mPosition = pos;
-        final Circle smallCircle = mSmallCircles.get(mPosition);
-        
-        /* 抽象大圆的半径动画 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(mCurrentMiddleCircleRadius - smallCircle.radius, mBigCircleRadius * (1 + mMaxCircleRadiusScaleRate) + 20);
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(400);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float currentBigCircleRadius = (float) animation.getAnimatedValue();
-                smallCircle.currentBigCircleRadius = currentBigCircleRadius;
-                invalidate();
-            }
-        });
-        valueAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                
-                startBigCircleRadiusAnim(++mPosition);
+        out.reset(1 + mSmallCircleCount);
+        out.set(0, mMiddleCircle.x, mMiddleCircle.y, middleCircleRadius);
+        for (int i = 0; i < mSmallCircleCount; i++) {
+            Circle smallCircle = mSmallCircles.get(i);
+            float orbitRadius = getOrbitRadius(smallCircle, i, step, time);
+            float smallCircleAngle = angle + smallCircle.degrees;
+            float x = mBigCircle.x + orbitRadius * FloatTrig.cos(smallCircleAngle);
+            float y = mBigCircle.y + orbitRadius * FloatTrig.sin(smallCircleAngle);
+            if (orbitRadius < maxAdherentLength) {
+                out.setAdhering(0);
+                out.setAdhering(i + 1);
             }
-
-        });
-        
-        
+            out.set(i + 1, x, y, smallCircle.radius);
+        }
     }
 
     /**
-     * 开始小圆坐标和中间圆半径变化动画
+     * 小圆的轨道半径
+     *
+     * @param smallCircle 小圆
+     * @param i           序号
+     * @param step        关键帧表中的第几步
+     * @param time        这一步内经过的时间
+     * @return 轨道半径
      */
-    public void startAngleAndMiddleCircleRadiusAnim() {
-        
-        /* 小圆坐标动画 */
-        for (int i = 0; i < mSmallCircleCount; i++) {
-            
-            final Circle smallCircle = mSmallCircles.get(i);
-            float angle = (float) Math.toDegrees(smallCircle.radian);
-            
-            ValueAnimator valueAnimator = ValueAnimator.ofFloat(angle, angle + 360);
-            valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-            valueAnimator.setDuration(3600);
-            valueAnimator.start();
-            valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    float angle = (float) animation.getAnimatedValue();
-                    smallCircle.x = (float) (mBigCircle.x + smallCircle.currentBigCircleRadius * Math.cos(Math.toRadians(angle)));
-                    smallCircle.y = (float) (mBigCircle.y + smallCircle.currentBigCircleRadius * Math.sin(Math.toRadians(angle)));
-                    invalidate();
-                }
-            });
+    private float getOrbitRadius(Circle smallCircle, int i, int step, long time) {
 
+        /* 延时或飞出前停在上次飞入的位置 */
+        if (step == mDelayStep || (step != mGatherStep && time < ORBIT_DURATION * i)) {
+            return smallCircle.gatherChannel.getTo();
         }
-
-        /* 中间圆半径动画 */
-        ValueAnimator valueAnimator2 = ValueAnimator.ofFloat(mCurrentMiddleCircleRadius, mCurrentMiddleCircleRadius * (1 - mMaxCircleRadiusScaleRate));
-        valueAnimator2.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator2.setDuration(3600);
-        valueAnimator2.start();
-        valueAnimator2.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float currentMiddleCircleRadius = (float) animation.getAnimatedValue();
-                mCurrentMiddleCircleRadius = currentMiddleCircleRadius;
-                invalidate();
-            }
-        });
-        valueAnimator2.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                
-                startBigCircleRadiusAnimRecovery(mSmallCircleCount - 1);
-                startAngleAndMiddleCircleRadiusAnimRecovery();
-            }
-        });
+        if (step == mGatherStep) {
+            return smallCircle.gatherChannel.valueAt(time);
+        }
+        return smallCircle.scatterChannel.valueAt(time);
     }
 
     /**
-     * 开始当前抽象大圆半径变化恢复动画
+     * 每个周期开始前的 200 毫秒延时
      *
-     * @param pos
+     * @param playTime
+     * @return 延时结束的播放时间
      */
-    private void startBigCircleRadiusAnimRecovery(int pos) {
-        if ( pos == -1)
-            return;
-
-        mPosition = pos;
-        final Circle smallCircle = mSmallCircles.get(mPosition);
-        
-        /* 抽象大圆的半径动画 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(smallCircle.currentBigCircleRadius, mCurrentMiddleCircleRadius - smallCircle.radius);
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(400);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float currentBigCircleRadius = (float) animation.getAnimatedValue();
-                smallCircle.currentBigCircleRadius = currentBigCircleRadius;
-                invalidate();
-            }
-        });
-        valueAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                
-                startBigCircleRadiusAnimRecovery(--mPosition);
-            }
-
-        });
+    @Override
+    protected long getHoldEnd(long playTime) {
+        long cycleTime = mSequencer.cycleTime(playTime);
+        if (mSequencer.stepAt(cycleTime) == mDelayStep) {
+            return playTime - cycleTime + mSequencer.getEndTime(mDelayStep);
+        }
+        return playTime;
     }
 
     /**
-     * 开始小圆坐标和中间圆半径变化恢复动画
+     * 按轨道半径和转过的角度更新小圆坐标
+     *
+     * @param smallCircle 小圆
+     * @param angle       转过的角度
+     * @return 坐标是否变化
      */
-    public void startAngleAndMiddleCircleRadiusAnimRecovery() {
-
-        /* 小圆坐标动画 */
-        for (int i = mSmallCircleCount - 1 ; i >= 0; i--) {
-
-            final Circle smallCircle = mSmallCircles.get(i);
-            float angle = (float) Math.toDegrees(smallCircle.radian);
-
-            ValueAnimator valueAnimator = ValueAnimator.ofFloat(angle, angle + 360);
-            valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-            valueAnimator.setDuration(3600);
-            valueAnimator.start();
-            valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    float angle = (float) animation.getAnimatedValue();
-                    smallCircle.x = (float) (mBigCircle.x + smallCircle.currentBigCircleRadius * Math.cos(Math.toRadians(angle)));
-                    smallCircle.y = (float) (mBigCircle.y + smallCircle.currentBigCircleRadius * Math.sin(Math.toRadians(angle)));
-                    invalidate();
-
-
-                }
-            });
-
-        }
-        
-        /* 中间圆半径动画 */
-        ValueAnimator valueAnimator2 = ValueAnimator.ofFloat(mCurrentMiddleCircleRadius, mCurrentMiddleCircleRadius / (1 - mMaxCircleRadiusScaleRate));
-        valueAnimator2.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator2.setDuration(3600);
-        valueAnimator2.start();
-        valueAnimator2.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float currentMiddleCircleRadius = (float) animation.getAnimatedValue();
-                mCurrentMiddleCircleRadius = currentMiddleCircleRadius;
-
-                invalidate();
-            }
-        });
-        valueAnimator2.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-
-                new Handler().postDelayed(new Runnable() {
-                    public void run() {
-                        startBigCircleRadiusAnim(0);
-                        startAngleAndMiddleCircleRadiusAnim();
-                    }
-                }, 200);
-
-            }
-        });
+    private boolean updateSmallCircle(Circle smallCircle, float angle) {
+        angle += smallCircle.degrees;
+        float x = mBigCircle.x + smallCircle.currentBigCircleRadius * FloatTrig.cos(angle);
+        float y = mBigCircle.y + smallCircle.currentBigCircleRadius * FloatTrig.sin(angle);
+        boolean changed = x != smallCircle.x || y != smallCircle.y;
+        smallCircle.x = x;
+        smallCircle.y = y;
+        return changed;
     }
-    
-    
+
     /**
      * 圆类
      */
@@ -668,7 +428,11 @@ public class ScatterMaterialLoader extends View {
         public float x;
         public float y;
         public float radius;
-        public float radian;
+
+        /* 在中间圆上的角度，初始化时确定，每帧直接加上旋转角 */
+        public float degrees;
         public float currentBigCircleRadius;
+        public FloatChannel scatterChannel;
+        public FloatChannel gatherChannel;
     }
 }
@@ -15,15 +15,10 @@
  */
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,7 +28,7 @@ import java.util.List;
  * 
  * Created by doshest on 2015/11/7.
  */
-public class SkipMaterialLoader extends View {
+public class SkipMaterialLoader extends MaterialLoader {
 
     /**
      * 宽度
@@ -61,9 +56,19 @@ public class SkipMaterialLoader extends View {
     private float mDivideWidth = 5;
     
     /**
-     * 表示哪一个小圆
+     * 每次上升或下降的时长
      */
-    private int mPosition;
+    private static final long SKIP_DURATION = 200;
+
+    /**
+     * 跳起的高度
+     */
+    private FloatChannel mSkipChannel;
+
+    /**
+     * 关键帧表，第i个圆的上升是第 2i 步，下降是第 2i+1 步
+     */
+    private KeyframeSequencer mSequencer = new KeyframeSequencer(2 * mCircleCount);
 
     /**
      * 静态圆
@@ -145,10 +150,17 @@ public class SkipMaterialLoader extends View {
             mCircle.x = mRadius + (mDivideWidth + 2 * mRadius) * i;
             mCircle.y = mHeight - (mHeight - mSkipHeight) / 2;
             mCircles.add(mCircle);
+
+            /* 后一个圆在前一个圆下降时上升 */
+            mSequencer.add(SKIP_DURATION * i, SKIP_DURATION);
+            mSequencer.add(SKIP_DURATION * (i + 1), SKIP_DURATION);
         }
         
-        /* 开始上升动画 */
-        startUpAnim(0);
+        /* 跳跃动画 */
+        mSkipChannel = FloatChannel.once(0, mSkipHeight, 0, SKIP_DURATION, Easing.ACCELERATE_DECELERATE);
+
+        /* 初始状态 */
+        onFrame(0);
     }
 
     /**
@@ -177,75 +189,68 @@ public class SkipMaterialLoader extends View {
     }
 
     /**
-     * 开启上升动画
-     * 
-     * @param i
+     * 每个圆依次上升再下降，后一个圆在前一个圆下降时上升，最后一个圆落下后重新开始
+     *
+     * @param playTime
      */
-    private void startUpAnim(int i) {
-        if (i == mCircleCount) {
-            return;
+    @Override
+    protected boolean onFrame(long playTime) {
+        long cycleTime = mSequencer.cycleTime(playTime);
+        boolean changed = false;
+        for (int i = 0; i < mCircleCount; i++) {
+            mCircle = mCircles.get(i);
+            float y = getCircleY(i, cycleTime);
+            changed |= y != mCircle.y;
+            mCircle.y = y;
         }
-        
-        final Circle circle = mCircles.get(i);
-        mPosition = i;
-      
-        /* 上升动画 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(circle.y, circle.y - mSkipHeight);
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(200);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float y = (float) animation.getAnimatedValue();
-                circle.y = y;
-                invalidate();
-            }
-        });
-        
-        valueAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                startDownAnim(mPosition);
-                startUpAnim(++mPosition);
-            }
-        });
+        return changed;
     }
 
     /**
-     * 开启下降动画
-     * 
-     * @param i
+     * 姿态：所有圆
+     *
+     * @param playTime
+     * @param out
+     */
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        long cycleTime = mSequencer.cycleTime(playTime);
+        out.reset(mCircleCount);
+        for (int i = 0; i < mCircleCount; i++) {
+            Circle circle = mCircles.get(i);
+            out.set(i, circle.x, getCircleY(i, cycleTime), circle.radius);
+        }
+    }
+
+    /**
+     * 周期内某一时间第i个圆的y坐标
+     *
+     * @param i         序号
+     * @param cycleTime 周期内的时间
+     * @return y坐标
      */
-    private void startDownAnim(int i) {
-        final Circle circle = mCircles.get(i);
-       
-        /* 下降动画 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(circle.y, circle.y + mSkipHeight);
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(200);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float y = (float) animation.getAnimatedValue();
-                circle.y = y;
-                invalidate();
-            }
-        });
-        if (i == mCircleCount - 1) {
-            valueAnimator.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    super.onAnimationEnd(animation);
-                    startUpAnim(0);
-                }
-            });
+    private float getCircleY(int i, long cycleTime) {
+        float baseY = mHeight - (mHeight - mSkipHeight) / 2;
+        int up = 2 * i;
+        int down = up + 1;
+
+        /* 上升 */
+        if (cycleTime < mSequencer.getStartTime(down)) {
+            return baseY - mSkipChannel.valueAt(mSequencer.localTime(up, cycleTime));
         }
+        /* 下降 */
+        return baseY - mSkipHeight + mSkipChannel.valueAt(mSequencer.localTime(down, cycleTime));
+    }
 
+    /**
+     * 掉帧降级时最低一级关闭抗锯齿
+     *
+     * @param tier
+     */
+    @Override
+    protected void onQualityTierChanged(int tier) {
+        mPaint.setAntiAlias(tier < QualityController.TIER_ALIASED);
     }
-    
 
     /**
      * 圆类
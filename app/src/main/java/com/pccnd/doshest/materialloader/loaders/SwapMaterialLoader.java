@@ -15,15 +15,10 @@
  */
 package com.pccnd.doshest.materialloader.loaders;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.util.AttributeSet;
-import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,7 +28,7 @@ import java.util.List;
  * 
  * Created by doshest on 2015/11/7.
  */
-public class SwapMaterialLoader extends View {
+public class SwapMaterialLoader extends MaterialLoader {
 
     /**
      * 宽度
@@ -61,9 +56,19 @@ public class SwapMaterialLoader extends View {
     private float mDivideWidth = 3 * mRadius;
     
     /**
-     * 表示哪一个小圆
+     * 每次交换的时长
      */
-    private int mPosition;
+    private static final long SWAP_DURATION = 600;
+
+    /**
+     * 交换时转过的角度
+     */
+    private FloatChannel mSwapChannel = FloatChannel.once(0, 180, 0, SWAP_DURATION, Easing.ACCELERATE_DECELERATE);
+
+    /**
+     * 关键帧表，第i步交换第i和第i+1个圆
+     */
+    private KeyframeSequencer mSequencer = new KeyframeSequencer(mCircleCount - 1);
 
     /**
      * 静态圆
@@ -141,9 +146,14 @@ public class SwapMaterialLoader extends View {
             mCircle.oldY = mCircle.y = mHeight / 2;
             mCircles.add(mCircle);
         }
+
+        /* 交换 */
+        for (int i = 0; i < mCircleCount - 1; i++) {
+            mSequencer.append(SWAP_DURATION);
+        }
         
-        /* 开始动画 */
-        startAnim(0);
+        /* 初始状态 */
+        onFrame(0);
     }
 
     /**
@@ -172,43 +182,74 @@ public class SwapMaterialLoader extends View {
     }
    
     /**
-     * 开始动画
+     * 相邻两个圆依次交换，每次 600 毫秒，最后一对交换完后重新开始
+     *
+     * @param playTime
      */
-    private void startAnim(int i) {
-        if (i == mCircleCount - 1) {
-            startAnim(0);
-            return;
-        }
-        
-        final Circle circle1,circle2;
-        circle1 = mCircles.get(i);
-        circle2 = mCircles.get(i+1);
+    @Override
+    protected boolean onFrame(long playTime) {
+        long cycleTime = mSequencer.cycleTime(playTime);
+        int position = mSequencer.stepAt(cycleTime);
+        float angle = mSwapChannel.valueAt(mSequencer.localTime(position, cycleTime));
+        float centerX = (mCircles.get(position).oldX + mCircles.get(position + 1).oldX) / 2;
+        float swapRadius = mDivideWidth / 2 +  mRadius;
 
-        mPosition = i;
-        
-        /* 交换动画 */
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(0, 180);
-        valueAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        valueAnimator.setDuration(600);
-        valueAnimator.start();
-        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float angle = (float)animation.getAnimatedValue();
-                circle1.x = (float)((circle1.oldX + circle2.oldX) / 2 + (mDivideWidth / 2 +  mRadius) * Math.cos(Math.toRadians(angle)));
-                circle1.y = (float)((mHeight / 2 ) + (mDivideWidth / 2 +  mRadius) * Math.sin(Math.toRadians(angle)));
-                circle2.x = (float)((circle1.oldX + circle2.oldX) / 2 + (mDivideWidth / 2 +  mRadius) * Math.cos(Math.toRadians(angle + 180)));
-                circle2.y = (float)((mHeight / 2 ) + (mDivideWidth / 2 +  mRadius) * Math.sin(Math.toRadians(angle + 180)));
-                invalidate();
-            }
-        });
-        valueAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                startAnim(++mPosition);
+        boolean changed = false;
+        for (int i = 0; i < mCircleCount; i++) {
+            mCircle = mCircles.get(i);
+            float x = mCircle.oldX;
+            float y = mCircle.oldY;
+
+            /* 交换 */
+            if (i == position) {
+                x = centerX + swapRadius * FloatTrig.cos(angle);
+                y = (mHeight / 2 ) + swapRadius * FloatTrig.sin(angle);
+            } else if (i == position + 1) {
+                x = centerX + swapRadius * FloatTrig.cos(angle + 180);
+                y = (mHeight / 2 ) + swapRadius * FloatTrig.sin(angle + 180);
             }
-        });
+            changed |= x != mCircle.x || y != mCircle.y;
+            mCircle.x = x;
+            mCircle.y = y;
+        }
+        return changed;
+    }
+
+    /**
+     * 姿态：所有圆
+     *
+     * @param playTime
+     * @param out
+     */
+    @Override
+    public void getPose(long playTime, LoaderPose out) {
+        long cycleTime = mSequencer.cycleTime(playTime);
+        int position = mSequencer.stepAt(cycleTime);
+        float angle = mSwapChannel.valueAt(mSequencer.localTime(position, cycleTime));
+        float centerX = (mCircles.get(position).oldX + mCircles.get(position + 1).oldX) / 2;
+        float swapRadius = mDivideWidth / 2 +  mRadius;
+
+        out.reset(mCircleCount);
+        for (int i = 0; i < mCircleCount; i++) {
+            Circle circle = mCircles.get(i);
+            out.set(i, circle.oldX, circle.oldY, circle.radius);
+        }
+
+        /* 交换 */
+        out.set(position, centerX + swapRadius * FloatTrig.cos(angle),
+                (mHeight / 2 ) + swapRadius * FloatTrig.sin(angle), mRadius);
+        out.set(position + 1, centerX + swapRadius * FloatTrig.cos(angle + 180),
+                (mHeight / 2 ) + swapRadius * FloatTrig.sin(angle + 180), mRadius);
+    }
+
+    /**
+     * 掉帧降级时最低一级关闭抗锯齿
+     *
+     * @param tier
+     */
+    @Override
+    protected void onQualityTierChanged(int tier) {
+        mPaint.setAntiAlias(tier < QualityController.TIER_ALIASED);
     }
 
     /**
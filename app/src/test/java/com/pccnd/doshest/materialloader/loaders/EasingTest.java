@@ -0,0 +1,36 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 查表插值器与原先的 AccelerateDecelerateInterpolator、LinearInterpolator 一致
+ */
+public class EasingTest {
+
+    @Test
+    public void accelerateDecelerateMatchesFormula() {
+        for (int i = 0; i <= 1000; i++) {
+            float input = i / 1000f;
+            float expected = (float) (Math.cos((input + 1) * Math.PI) / 2 + 0.5);
+            assertEquals("at " + input, expected, Easing.ACCELERATE_DECELERATE.getInterpolation(input), 1e-5f);
+        }
+    }
+
+    @Test
+    public void linearIsIdentity() {
+        for (int i = 0; i <= 1000; i++) {
+            float input = i / 1000f;
+            assertEquals("at " + input, input, Easing.LINEAR.getInterpolation(input), 1e-6f);
+        }
+    }
+
+    @Test
+    public void endpointsAreExactAndClamped() {
+        assertEquals(0f, Easing.ACCELERATE_DECELERATE.getInterpolation(0), 0);
+        assertEquals(1f, Easing.ACCELERATE_DECELERATE.getInterpolation(1), 0);
+        assertEquals(0f, Easing.ACCELERATE_DECELERATE.getInterpolation(-0.5f), 0);
+        assertEquals(1f, Easing.ACCELERATE_DECELERATE.getInterpolation(1.5f), 0);
+    }
+}
@@ -0,0 +1,40 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 通道的延时、截断和重复方式与 ValueAnimator 一致
+ */
+public class FloatChannelTest {
+
+    @Test
+    public void onceHoldsStartBeforeDelayAndEndAfterDuration() {
+        FloatChannel channel = FloatChannel.once(10, 20, 100, 400, Easing.LINEAR);
+        assertEquals(10f, channel.valueAt(0), 0);
+        assertEquals(10f, channel.valueAt(100), 0);
+        assertEquals(15f, channel.valueAt(300), 1e-4f);
+        assertEquals(20f, channel.valueAt(500), 0);
+        assertEquals(20f, channel.valueAt(10000), 0);
+    }
+
+    @Test
+    public void repeatRestartsFromStart() {
+        FloatChannel channel = FloatChannel.repeat(0, 100, 400, Easing.LINEAR);
+        assertEquals(25f, channel.valueAt(100), 1e-4f);
+        assertEquals(0f, channel.valueAt(400), 0);
+        assertEquals(25f, channel.valueAt(500), 1e-4f);
+        assertEquals(25f, channel.valueAt(4100), 1e-4f);
+    }
+
+    @Test
+    public void reverseRunsBackwardsOnOddRepeats() {
+        FloatChannel channel = FloatChannel.reverse(0, 100, 400, Easing.LINEAR);
+        assertEquals(25f, channel.valueAt(100), 1e-4f);
+        assertEquals(100f, channel.valueAt(400), 0);
+        assertEquals(75f, channel.valueAt(500), 1e-4f);
+        assertEquals(0f, channel.valueAt(800), 0);
+        assertEquals(25f, channel.valueAt(900), 1e-4f);
+    }
+}
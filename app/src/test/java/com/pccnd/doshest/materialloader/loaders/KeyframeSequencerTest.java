@@ -0,0 +1,47 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 关键帧表的登记、查找和周期换算
+ */
+public class KeyframeSequencerTest {
+
+    @Test
+    public void appendedStepsFollowEachOther() {
+        KeyframeSequencer sequencer = new KeyframeSequencer(3);
+        assertEquals(0, sequencer.append(200));
+        assertEquals(1, sequencer.append(3600));
+        assertEquals(2, sequencer.append(3600));
+        assertEquals(7400, sequencer.getCycle());
+        assertEquals(200, sequencer.getStartTime(1));
+        assertEquals(3800, sequencer.getEndTime(1));
+    }
+
+    @Test
+    public void stepAtFindsLastStartedStep() {
+        KeyframeSequencer sequencer = new KeyframeSequencer(4);
+        sequencer.add(100, 200);
+        sequencer.add(200, 200);
+        sequencer.add(200, 100);
+        sequencer.add(600, 100);
+        assertEquals(-1, sequencer.stepAt(0));
+        assertEquals(0, sequencer.stepAt(100));
+        assertEquals(0, sequencer.stepAt(199));
+        assertEquals(2, sequencer.stepAt(200));
+        assertEquals(2, sequencer.stepAt(599));
+        assertEquals(3, sequencer.stepAt(699));
+    }
+
+    @Test
+    public void cycleTimeWrapsPlayTime() {
+        KeyframeSequencer sequencer = new KeyframeSequencer(2);
+        sequencer.append(600);
+        sequencer.append(600);
+        assertEquals(0, sequencer.cycleTime(1200));
+        assertEquals(100, sequencer.cycleTime(2500));
+        assertEquals(-100, sequencer.localTime(1, 500));
+    }
+}
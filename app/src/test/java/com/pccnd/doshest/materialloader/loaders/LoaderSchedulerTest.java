@@ -0,0 +1,326 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用 {@link ManualClock} 逐帧推进，检查调度器送出的帧、静止段的跳过和帧率限制.
+ * 帧率和静止段的测试都带上发帧请求前的耗时，延迟请求从发出时算起，不能因此晚一帧，也不能因此算作掉帧.
+ *
+ * 加载器是 View，构造时设置画笔只走到 android.jar 的空实现；断言只读取调度结果和记录下来的重绘、
+ * 可见性变化，不读取任何框架方法的返回值.
+ */
+public class LoaderSchedulerTest {
+
+    private ManualClock mClock;
+
+    private RecordingLoader mLoader;
+
+    /**
+     * 发出下一帧请求前的耗时
+     */
+    private static final long POST_LATENCY_NANOS = 4000000;
+
+    /**
+     * 一毫秒，单位纳秒
+     */
+    private static final long MILLISECOND = 1000000;
+
+    @Before
+    public void setUp() {
+        MaterialLoader.setDefaultMaxFrameRate(MaterialLoader.FRAME_RATE_UNLIMITED);
+        mClock = new ManualClock();
+        mLoader = new RecordingLoader();
+        mLoader.clock = mClock;
+    }
+
+    @Test
+    public void everyVsyncAdvancesPlayTime() {
+        mClock.add(mLoader);
+        assertEquals(60, mClock.stepFrames(60));
+        for (int i = 0; i < 60; i++) {
+            assertEquals(i * ManualClock.FRAME_INTERVAL_NANOS / 1000000, (long) mLoader.playTimes.get(i));
+        }
+        assertEquals(60, mLoader.invalidations);
+    }
+
+    @Test
+    public void blockedFrameUsesLatestVsync() {
+        mClock.add(mLoader);
+        mClock.stepFrames(1);
+        assertTrue(mClock.step(3 * ManualClock.FRAME_INTERVAL_NANOS + 5000000));
+        assertEquals(3 * ManualClock.FRAME_INTERVAL_NANOS / 1000000, (long) mLoader.playTimes.get(1));
+    }
+
+    @Test
+    public void holdSkipsFramesUntilItEnds() {
+        mLoader.holdStart = 100;
+        mLoader.holdEnd = 500;
+        mClock.add(mLoader);
+        int dispatched = mClock.stepFrames(60);
+        assertTrue("dispatched " + dispatched, dispatched < 40);
+        long resumed = -1;
+        for (long playTime : mLoader.playTimes) {
+            assertFalse("frame inside hold at " + playTime, playTime > 100 + 17 && playTime < 500);
+            if (resumed < 0 && playTime >= 500) {
+                resumed = playTime;
+            }
+        }
+        assertTrue("resumed at " + resumed, resumed >= 500 && resumed < 500 + 17);
+
+        /* 跳过的帧不重绘 */
+        assertEquals(mLoader.playTimes.size(), mLoader.invalidations);
+    }
+
+    @Test
+    public void holdResumesOnTimeWithPostLatency() {
+        mClock.setPostLatency(POST_LATENCY_NANOS);
+        mLoader.holdStart = 100;
+        mLoader.holdEnd = 500;
+        mClock.add(mLoader);
+        mClock.stepFrames(60);
+        long resumed = -1;
+        for (long playTime : mLoader.playTimes) {
+            assertFalse("frame inside hold at " + playTime, playTime > 100 + 17 && playTime < 500 - 9);
+            if (resumed < 0 && playTime >= 500 - 9) {
+                resumed = playTime;
+            }
+        }
+        assertTrue("resumed at " + resumed, resumed >= 500 - 9 && resumed < 500 + 17);
+    }
+
+    @Test
+    public void delayedFramesWithPostLatencyAreNotDrops() {
+
+        /* 延迟请求晚发出 10 毫秒，提前一帧到期也赶不上目标的垂直同步 */
+        mClock.setPostLatency(10000000);
+
+        /* 每 100 毫秒静止 60 毫秒，每个周期都有一次延迟请求 */
+        mLoader.holdStart = 20;
+        mLoader.holdEnd = 80;
+        mLoader.holdPeriod = 100;
+        final List<Integer> tiers = new ArrayList<Integer>();
+        mClock.getScheduler().getQualityController().addOnTierChangedListener(
+                new QualityController.OnTierChangedListener() {
+                    @Override
+                    public void onTierChanged(int tier) {
+                        tiers.add(tier);
+                    }
+                });
+        mClock.add(mLoader);
+        mClock.stepFrames(600);
+        assertTrue("tier changes " + tiers, tiers.isEmpty());
+    }
+
+    @Test
+    public void blockedFramesStepQualityDownThenSteadyFramesStepItUp() {
+        QualityController quality = mClock.getScheduler().getQualityController();
+        mClock.setPostLatency(POST_LATENCY_NANOS);
+        mClock.add(mLoader);
+        mClock.stepFrames(10);
+
+        /* 主线程每隔几帧被阻塞两个刷新间隔 */
+        for (int i = 0; i < 3; i++) {
+            mClock.step(3 * ManualClock.FRAME_INTERVAL_NANOS);
+            mClock.stepFrames(5);
+        }
+        assertEquals(QualityController.TIER_REDUCED_FRAME_RATE, quality.getTier());
+
+        /* 最后一次掉帧后已有 5 帧，连续 180 帧不掉帧才升级 */
+        mClock.stepFrames(174);
+        assertEquals(QualityController.TIER_REDUCED_FRAME_RATE, quality.getTier());
+        mClock.stepFrames(1);
+        assertEquals(QualityController.TIER_FULL, quality.getTier());
+    }
+
+    @Test
+    public void thirtyFpsCapRendersEveryOtherVsync() {
+        assertFrameRateCap(30, 60, 33, 34);
+    }
+
+    @Test
+    public void twentyFpsCapRendersEveryThirdVsync() {
+        assertFrameRateCap(20, 40, 50, 50);
+    }
+
+    @Test
+    public void unevenCapAlternatesBetweenVsyncCounts() {
+        assertFrameRateCap(24, 48, 33, 50);
+    }
+
+    @Test
+    public void defaultCapAppliesWithoutLoaderCap() {
+        MaterialLoader.setDefaultMaxFrameRate(30);
+        assertFrameRateCap(-1, 60, 33, 34);
+    }
+
+    @Test
+    public void pursuePauseRequestsNoFrames() {
+
+        /* 一个周期 3600 毫秒，其中停在中间 400 毫秒 */
+        mClock.add(new PursueMaterialLoader(null) {
+            @Override
+            public void invalidate() {
+            }
+        });
+        int dispatched = mClock.stepFrames(216);
+        assertTrue("dispatched " + dispatched, dispatched <= 216 - 22 && dispatched >= 216 - 26);
+    }
+
+    @Test
+    public void removedLoaderGetsNoFrames() {
+        mClock.add(mLoader);
+        mClock.stepFrames(5);
+        mClock.remove(mLoader);
+        assertEquals(0, mClock.stepFrames(10));
+        assertEquals(5, mLoader.playTimes.size());
+        assertEquals(5, mLoader.invalidations);
+    }
+
+    @Test
+    public void delayedShowAndMinShowTimeWakeIdleScheduler() {
+
+        /* 登记延迟显示后停止推进，只剩显示和隐藏的到期时间 */
+        mClock.add(mLoader);
+        mLoader.show();
+        mClock.remove(mLoader);
+        assertEquals(1, mLoader.visibilities.size());
+        assertEquals(View.GONE, (int) mLoader.visibilities.get(0));
+
+        /* 默认延迟 500 毫秒显示，只送出唤醒的帧 */
+        int dispatched = mClock.stepFrames(31);
+        assertTrue("dispatched " + dispatched, dispatched <= 2);
+        assertEquals(2, mLoader.visibilities.size());
+        assertEquals(View.VISIBLE, (int) mLoader.visibilities.get(1));
+        long shownAt = mLoader.visibilityTimes.get(1);
+        assertNear(500 * MILLISECOND, shownAt);
+
+        /* 显示一帧后就隐藏，仍然保持到 500 毫秒 */
+        mLoader.hide();
+        assertEquals(2, mLoader.visibilities.size());
+        dispatched = mClock.stepFrames(60);
+        assertTrue("dispatched " + dispatched, dispatched <= 2);
+        assertEquals(3, mLoader.visibilities.size());
+        assertEquals(View.GONE, (int) mLoader.visibilities.get(2));
+        assertNear(shownAt + 500 * MILLISECOND, mLoader.visibilityTimes.get(2));
+
+        /* 没有等待的显示或隐藏，不再请求帧 */
+        assertEquals(0, mClock.stepFrames(60));
+    }
+
+    @Test
+    public void hideBeforeShowDelayCancelsShow() {
+        mClock.add(mLoader);
+        mLoader.show();
+        mClock.remove(mLoader);
+        mClock.stepFrames(10);
+        mLoader.hide();
+        assertEquals(0, mClock.stepFrames(60));
+        assertFalse("shown " + mLoader.visibilities, mLoader.visibilities.contains(View.VISIBLE));
+    }
+
+    @Test
+    public void delayedShowKeepsRunningLoaderOnEveryVsync() {
+        mClock.add(mLoader);
+        mLoader.setShowDelay(200);
+        mLoader.show();
+        assertEquals(30, mClock.stepFrames(30));
+        assertEquals(View.VISIBLE, (int) mLoader.visibilities.get(1));
+        assertNear(200 * MILLISECOND, mLoader.visibilityTimes.get(1));
+    }
+
+    /**
+     * 可见性变化在到期时间之后一帧以内，离到期不到半帧的一帧也算到期
+     */
+    private static void assertNear(long expected, long actual) {
+        assertTrue("at " + actual + " expected " + expected,
+                actual >= expected - ManualClock.FRAME_INTERVAL_NANOS / 2
+                        && actual < expected + ManualClock.FRAME_INTERVAL_NANOS);
+    }
+
+    /**
+     * 带发帧耗时推进两秒，检查实际计算的帧数和相邻两帧的间隔
+     *
+     * @param frameRate    加载器的最大帧率，小于0表示使用全局默认值
+     * @param frames       两秒内应计算的帧数，允许多一帧或少一帧
+     * @param minGapMillis 相邻两帧播放时间的最小间隔
+     * @param maxGapMillis 相邻两帧播放时间的最大间隔
+     */
+    private void assertFrameRateCap(int frameRate, int frames, long minGapMillis, long maxGapMillis) {
+        mClock.getScheduler().getQualityController().setEnabled(false);
+        mClock.setPostLatency(POST_LATENCY_NANOS);
+        mLoader.setMaxFrameRate(frameRate);
+        mClock.add(mLoader);
+        mClock.stepFrames(120);
+        int count = mLoader.playTimes.size();
+        assertTrue("rendered " + count, Math.abs(count - frames) <= 1);
+        for (int i = 1; i < count; i++) {
+            long gap = mLoader.playTimes.get(i) - mLoader.playTimes.get(i - 1);
+            assertTrue("gap " + gap + " at " + i, gap >= minGapMillis && gap <= maxGapMillis);
+        }
+    }
+
+    /**
+     * 记录每帧播放时间、重绘次数和可见性变化的加载器，可以设置一段静止段，按周期重复
+     */
+    static final class RecordingLoader extends MaterialLoader {
+
+        final List<Long> playTimes = new ArrayList<Long>();
+
+        long holdStart = Long.MAX_VALUE;
+
+        long holdEnd = Long.MAX_VALUE;
+
+        long holdPeriod = Long.MAX_VALUE;
+
+        int invalidations;
+
+        final List<Integer> visibilities = new ArrayList<Integer>();
+
+        final List<Long> visibilityTimes = new ArrayList<Long>();
+
+        ManualClock clock;
+
+        RecordingLoader() {
+            super(null);
+        }
+
+        @Override
+        public void invalidate() {
+            invalidations++;
+        }
+
+        @Override
+        public void setVisibility(int visibility) {
+            visibilities.add(visibility);
+            visibilityTimes.add(clock.getTimeNanos());
+        }
+
+        @Override
+        protected boolean onFrame(long playTime) {
+            playTimes.add(playTime);
+            return true;
+        }
+
+        @Override
+        public void getPose(long playTime, LoaderPose out) {
+            out.reset(0);
+        }
+
+        @Override
+        protected long getHoldEnd(long playTime) {
+            long cycleStart = playTime - playTime % holdPeriod;
+            long time = playTime - cycleStart;
+            return time >= holdStart && time < holdEnd ? cycleStart + holdEnd : playTime;
+        }
+    }
+}
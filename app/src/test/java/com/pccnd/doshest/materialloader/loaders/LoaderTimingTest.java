@@ -0,0 +1,259 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 各加载器的关键帧与原先每个圆一个 ValueAnimator 的实现保持一致：时长、插值器、重复方式和先后顺序.
+ *
+ * 期望值按原实现的参数计算，AccelerateDecelerateInterpolator 为 (cos((t + 1)π) / 2) + 0.5；
+ * 起点、终点和圆心从加载器自己在关键时刻的姿态读出，只比较随时间变化的部分.
+ * 姿态只由关键帧和构造时的尺寸计算，不经过任何框架方法.
+ */
+public class LoaderTimingTest {
+
+    private static final float POSITION_TOLERANCE = 0.01f;
+
+    private static final float ANGLE_TOLERANCE = 0.05f;
+
+    private final LoaderPose mPose = new LoaderPose();
+
+    @Test
+    public void chaseCirclesTurnOnceWithStaggeredDurations() {
+        ChaseMaterialLoader loader = new ChaseMaterialLoader(null);
+
+        /* 原实现：第 i 个圆 1000 + 200i 毫秒转一周，最慢的一个转完后一起重新开始 */
+        float[] center = orbitCenter(loader, 0, 0, 500);
+        long cycle = 1800;
+        for (int i = 0; i < 5; i++) {
+            long duration = 1000 + 200 * i;
+            for (long time = 0; time < 2 * cycle; time += 50) {
+                float fraction = Math.min(1, (float) (time % cycle) / duration);
+                assertAngle("circle " + i + " at " + time, 360 * accelerateDecelerate(fraction),
+                        loader, i, center, time);
+            }
+        }
+    }
+
+    @Test
+    public void roundDynamicCircleTurnsOnceEvery2500Millis() {
+        RoundMaterialLoader loader = new RoundMaterialLoader(null);
+
+        /* 原实现：-90 到 270 度，2500 毫秒，无限重复 */
+        float[] center = orbitCenter(loader, 0, 0, 1250);
+        for (long time = 0; time < 5000; time += 50) {
+            float fraction = (float) (time % 2500) / 2500;
+            assertAngle("at " + time, 360 * accelerateDecelerate(fraction), loader, 0, center, time);
+        }
+    }
+
+    @Test
+    public void shuttleOrbitsLinearlyWhileRadiusReverses() {
+        ShuttleMaterialLoader loader = new ShuttleMaterialLoader(null);
+
+        /* 原实现：轨道半径 0 到 R 往返，单程 800 毫秒；角度 180 到 1620 度匀速，9600 毫秒 */
+        assertSpiral(loader, 800, 180, 1440, 9600);
+    }
+
+    @Test
+    public void mixOrbitsLinearlyWhileRadiusReverses() {
+        MixMaterialLoader loader = new MixMaterialLoader(null);
+
+        /* 原实现：轨道半径 0 到 R 往返，单程 1600 毫秒；角度 180 到 540 度匀速，3200 毫秒 */
+        assertSpiral(loader, 1600, 180, 360, 3200);
+    }
+
+    @Test
+    public void horizonTalDynamicCircleReversesEvery2500Millis() {
+        HorizonTalMaterialLoader loader = new HorizonTalMaterialLoader(null);
+
+        /* 原实现：从左端到右端往返，单程 2500 毫秒 */
+        float start = x(loader, 0, 0);
+        float end = x(loader, 0, 2500);
+        for (long time = 0; time < 10000; time += 50) {
+            assertEquals("at " + time, start + (end - start) * accelerateDecelerate(reverseFraction(time, 2500)),
+                    x(loader, 0, time), POSITION_TOLERANCE);
+        }
+    }
+
+    @Test
+    public void linearCirclesAndStaticRadiusReverse() {
+        LinearMaterialLoader loader = new LinearMaterialLoader(null);
+
+        /* 原实现：动态圆往返，单程 1600 毫秒；静态圆半径放大到 1.5 倍再缩回，单程 800 毫秒 */
+        float startRadius = radius(loader, 0, 0);
+        for (long time = 0; time < 6400; time += 50) {
+            float scale = 1 + 0.5f * accelerateDecelerate(reverseFraction(time, 800));
+            assertEquals("radius at " + time, startRadius * scale, radius(loader, 0, time), POSITION_TOLERANCE);
+            for (int i = 1; i <= 2; i++) {
+                float start = x(loader, i, 0);
+                float end = x(loader, i, 1600);
+                assertEquals("circle " + i + " at " + time,
+                        start + (end - start) * accelerateDecelerate(reverseFraction(time, 1600)),
+                        x(loader, i, time), POSITION_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void scatterMiddleCircleShrinksAndGrowsAfterDelay() {
+        ScatterMaterialLoader loader = new ScatterMaterialLoader(null);
+
+        /* 原实现：延时 200 毫秒，中间圆半径 3600 毫秒缩小到 0.6 倍，再 3600 毫秒恢复 */
+        float full = radius(loader, 0, 0);
+        float shrunk = full * 0.6f;
+        for (long time = 0; time < 7400; time += 50) {
+            float expected;
+            if (time < 200) {
+                expected = full;
+            } else if (time < 3800) {
+                expected = full + (shrunk - full) * accelerateDecelerate((time - 200) / 3600f);
+            } else {
+                expected = shrunk + (full - shrunk) * accelerateDecelerate((time - 3800) / 3600f);
+            }
+            assertEquals("at " + time, expected, radius(loader, 0, time), POSITION_TOLERANCE);
+            assertEquals("next cycle at " + time, expected, radius(loader, 0, time + 7400), POSITION_TOLERANCE);
+        }
+    }
+
+    @Test
+    public void pursueCirclesEnterThenLeaveWithStaggeredDurations() {
+        PursueMaterialLoader loader = new PursueMaterialLoader(null);
+
+        /* 原实现：第 i 个圆 800 + 200i 毫秒进入，全部到达后停 400 毫秒，再以同样的时长离开 */
+        for (int i = 0; i < 5; i++) {
+            long duration = 800 + 200 * i;
+            float start = x(loader, i, 0);
+            float distance = x(loader, i, duration) - start;
+            for (long time = 0; time < 3600; time += 50) {
+                float expected = time < 2000
+                        ? start + distance * accelerateDecelerate(Math.min(1, (float) time / duration))
+                        : start + distance + distance * accelerateDecelerate(Math.min(1, (float) (time - 2000) / duration));
+                assertEquals("circle " + i + " at " + time, expected, x(loader, i, time), POSITION_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void skipCirclesJumpOneAfterAnother() {
+        SkipMaterialLoader loader = new SkipMaterialLoader(null);
+
+        /* 原实现：每个圆 200 毫秒跳起、200 毫秒落下，下一个圆在前一个圆落下时跳起 */
+        for (int i = 0; i < 4; i++) {
+            float ground = y(loader, i, 0);
+            float top = y(loader, i, 200 * i + 200);
+            for (long time = 0; time < 200; time += 10) {
+                float fraction = accelerateDecelerate(time / 200f);
+                assertEquals("circle " + i + " up at " + time, ground + (top - ground) * fraction,
+                        y(loader, i, 200 * i + time), POSITION_TOLERANCE);
+                assertEquals("circle " + i + " down at " + time, top + (ground - top) * fraction,
+                        y(loader, i, 200 * i + 200 + time), POSITION_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void swapPairsTurnHalfwayOneAfterAnother() {
+        SwapMaterialLoader loader = new SwapMaterialLoader(null);
+
+        /* 原实现：相邻两个圆绕中点转 180 度交换，每次 600 毫秒，依次进行 */
+        for (int position = 0; position < 2; position++) {
+            long start = 600 * position;
+            float[] center = {
+                    (x(loader, position, start) + x(loader, position + 1, start)) / 2,
+                    (y(loader, position, start) + y(loader, position + 1, start)) / 2
+            };
+            for (long time = 0; time < 600; time += 25) {
+                float expected = 180 * accelerateDecelerate(time / 600f);
+                loader.getPose(start, mPose);
+                float startX = mPose.getX(position);
+                float startY = mPose.getY(position);
+                loader.getPose(start + time, mPose);
+                assertEquals("pair " + position + " at " + time, expected,
+                        turnedAngle(center, startX, startY, mPose.getX(position), mPose.getY(position), expected),
+                        ANGLE_TOLERANCE);
+            }
+        }
+    }
+
+    /**
+     * 轨道半径往返、角度匀速的加载器，第 0 个圆在 0 时刻位于圆心
+     */
+    private void assertSpiral(MaterialLoader loader, long radiusDuration, float startAngle, float sweep, long angleDuration) {
+        float centerX = x(loader, 0, 0);
+        float centerY = y(loader, 0, 0);
+        float maxRadius = distance(centerX, centerY, x(loader, 0, radiusDuration), y(loader, 0, radiusDuration));
+        for (long time = 0; time < 2 * angleDuration; time += 50) {
+            float orbitRadius = maxRadius * accelerateDecelerate(reverseFraction(time, radiusDuration));
+            double angle = Math.toRadians(startAngle + sweep * (time % angleDuration) / angleDuration);
+            assertEquals("x at " + time, centerX + orbitRadius * (float) Math.cos(angle), x(loader, 0, time), POSITION_TOLERANCE);
+            assertEquals("y at " + time, centerY + orbitRadius * (float) Math.sin(angle), y(loader, 0, time), POSITION_TOLERANCE);
+        }
+    }
+
+    /**
+     * 第 i 个圆相对 0 时刻转过的角度
+     */
+    private void assertAngle(String message, float expected, MaterialLoader loader, int i, float[] center, long time) {
+        float actual = turnedAngle(center, x(loader, i, 0), y(loader, i, 0), x(loader, i, time), y(loader, i, time), expected);
+        assertEquals(message, expected, actual, ANGLE_TOLERANCE);
+    }
+
+    /**
+     * 第 i 个圆的轨道中心：加速减速插值在一半时间时正好走到一半，半周前后两个位置的中点就是中心
+     */
+    private float[] orbitCenter(MaterialLoader loader, int i, long start, long halfTurn) {
+        return new float[]{
+                (x(loader, i, start) + x(loader, i, start + halfTurn)) / 2,
+                (y(loader, i, start) + y(loader, i, start + halfTurn)) / 2
+        };
+    }
+
+    /**
+     * 绕中心从起点转到终点的角度，取与期望值相差不超过半周的一个，避免 0 和 360 度的跳变
+     */
+    private static float turnedAngle(float[] center, float startX, float startY, float x, float y, float expected) {
+        double start = Math.atan2(startY - center[1], startX - center[0]);
+        double end = Math.atan2(y - center[1], x - center[0]);
+        double degrees = Math.toDegrees(end - start);
+        while (degrees - expected > 180) {
+            degrees -= 360;
+        }
+        while (expected - degrees > 180) {
+            degrees += 360;
+        }
+        return (float) degrees;
+    }
+
+    private float x(MaterialLoader loader, int i, long time) {
+        loader.getPose(time, mPose);
+        return mPose.getX(i);
+    }
+
+    private float y(MaterialLoader loader, int i, long time) {
+        loader.getPose(time, mPose);
+        return mPose.getY(i);
+    }
+
+    private float radius(MaterialLoader loader, int i, long time) {
+        loader.getPose(time, mPose);
+        return mPose.getRadius(i);
+    }
+
+    private static float distance(float x1, float y1, float x2, float y2) {
+        return (float) Math.hypot(x1 - x2, y1 - y2);
+    }
+
+    /**
+     * 往返重复时的进度，奇数次反向
+     */
+    private static float reverseFraction(long time, long duration) {
+        float fraction = (float) (time % duration) / duration;
+        return (time / duration) % 2 == 1 ? 1 - fraction : fraction;
+    }
+
+    private static float accelerateDecelerate(float input) {
+        return (float) (Math.cos((input + 1) * Math.PI) / 2 + 0.5);
+    }
+}
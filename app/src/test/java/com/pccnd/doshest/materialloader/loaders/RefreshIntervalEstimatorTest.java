@@ -0,0 +1,50 @@
+package com.pccnd.doshest.materialloader.loaders;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 刷新间隔估计不受掉帧和个别提前的帧影响，刷新率变化后能跟上
+ */
+public class RefreshIntervalEstimatorTest {
+
+    private static final long INTERVAL_60 = 16666667;
+
+    private static final long INTERVAL_90 = 11111111;
+
+    @Test
+    public void defaultsTo60Fps() {
+        assertEquals(RefreshIntervalEstimator.DEFAULT_INTERVAL_NANOS, new RefreshIntervalEstimator().getIntervalNanos());
+    }
+
+    @Test
+    public void droppedFramesDoNotStretchEstimate() {
+        RefreshIntervalEstimator estimator = new RefreshIntervalEstimator();
+        for (int i = 0; i < 64; i++) {
+            estimator.addSample(i % 2 == 0 ? 2 * INTERVAL_90 : INTERVAL_90);
+        }
+        assertEquals(INTERVAL_90, estimator.getIntervalNanos());
+    }
+
+    @Test
+    public void earlyFramesDoNotShrinkEstimate() {
+        RefreshIntervalEstimator estimator = new RefreshIntervalEstimator();
+        for (int i = 0; i < 64; i++) {
+            estimator.addSample(i % 8 == 0 ? INTERVAL_60 - 3000000 : INTERVAL_60);
+        }
+        assertEquals(INTERVAL_60, estimator.getIntervalNanos());
+    }
+
+    @Test
+    public void followsRefreshRateChange() {
+        RefreshIntervalEstimator estimator = new RefreshIntervalEstimator();
+        for (int i = 0; i < 16; i++) {
+            estimator.addSample(INTERVAL_60);
+        }
+        for (int i = 0; i < 16; i++) {
+            estimator.addSample(INTERVAL_90);
+        }
+        assertEquals(INTERVAL_90, estimator.getIntervalNanos());
+    }
+}